@@ -0,0 +1,161 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.ui.nodeeditor.EditorSession;
+import lando.systems.game.ui.nodeeditor.objects.Link2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EditorSession} object management, lookups and selection bookkeeping.
+ * Everything here is plain java, the native selection query in
+ * {@link EditorSession#updateSelections()} is bypassed by calling
+ * {@link EditorSession#applySelection(long[], int, long[], int)} directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class EditorSessionBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int numNodes;
+
+    private Fixtures fixtures;
+    private EditorSession session;
+
+    private long[] nodeIds;
+    private long[] pinIds;
+    private Node2[] lookupNodes;
+    private int cursor;
+
+    // two selections of ~10% of the nodes that only partially overlap,
+    // alternating between them makes every apply produce a diff
+    private long[][] selections;
+    private int[] selectionSizes;
+    private final long[] noLinks = new long[0];
+    private int selectionIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixtures = Fixtures.generate(numNodes);
+        session = fixtures.populate();
+
+        var indices = Fixtures.randomIndices(fixtures.nodes.size());
+        nodeIds = new long[indices.length];
+        pinIds = new long[indices.length];
+        lookupNodes = new Node2[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            var node = fixtures.nodes.get(indices[i]);
+            lookupNodes[i] = node;
+            nodeIds[i] = node.globalId;
+            var pins = node.inputs.isEmpty() ? node.outputs : node.inputs;
+            pinIds[i] = pins.get(0).globalId;
+        }
+
+        int selectionSize = Math.max(1, numNodes / 10);
+        selections = new long[2][selectionSize];
+        selectionSizes = new int[2];
+        for (int s = 0; s < 2; s++) {
+            int offset = s * selectionSize / 2;
+            for (int i = 0; i < selectionSize; i++) {
+                var node = fixtures.nodes.get((offset + i) % fixtures.nodes.size());
+                selections[s][i] = node.globalId;
+            }
+            selectionSizes[s] = selectionSize;
+        }
+        session.applySelection(selections[0], selectionSizes[0], noLinks, 0);
+        selectionIndex = 1;
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = (cursor + 1) & (Fixtures.NUM_LOOKUPS - 1);
+        return index;
+    }
+
+    /**
+     * Build a whole session: nodes, their pins and the links between them
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public EditorSession addNodesAndLinks() {
+        return fixtures.populate();
+    }
+
+    /**
+     * Remove a node, which cascades to its pins and links, then put it all back
+     * so the session stays the same size between invocations
+     */
+    @Benchmark
+    public void removeAndReAddNode(RemovedLinks removed) {
+        var node = lookupNodes[next()];
+        removed.collect(session, node);
+        session.removeNode(node);
+        session.addNode(node);
+        for (int i = 0; i < removed.links.size(); i++) {
+            session.addLink(removed.links.get(i));
+        }
+    }
+
+    @Benchmark
+    public Node2 getNode() {
+        return session.getNode(nodeIds[next()]);
+    }
+
+    @Benchmark
+    public void findNode(Blackhole blackhole) {
+        blackhole.consume(session.findNode(nodeIds[next()]));
+    }
+
+    @Benchmark
+    public void findPin(Blackhole blackhole) {
+        blackhole.consume(session.findPin(pinIds[next()]));
+    }
+
+    @Benchmark
+    public void applySelection() {
+        int s = selectionIndex;
+        session.applySelection(selections[s], selectionSizes[s], noLinks, 0);
+        selectionIndex = 1 - s;
+    }
+
+    @Benchmark
+    public boolean isSelected() {
+        return session.isSelected(lookupNodes[next()]);
+    }
+
+    /**
+     * Scratch list for the links that a node removal takes with it
+     */
+    @State(Scope.Thread)
+    public static class RemovedLinks {
+        final List<Link2> links = new ArrayList<>();
+
+        void collect(EditorSession session, Node2 node) {
+            links.clear();
+            links.addAll(session.getLinksInto(node));
+            links.addAll(session.getLinksOutOf(node));
+        }
+    }
+}
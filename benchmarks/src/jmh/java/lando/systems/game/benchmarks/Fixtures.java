@@ -0,0 +1,88 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.ui.nodeeditor.EditorSession;
+import lando.systems.game.ui.nodeeditor.NodeFactory;
+import lando.systems.game.ui.nodeeditor.objects.Link2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated node editor graphs for the benchmarks.
+ * <p>
+ * Nodes come in pairs, a 'Text' node feeding a 'Display Text' node,
+ * and the 'Display Text' nodes are chained together through their flow pins,
+ * so there are roughly as many links as nodes.
+ */
+final class Fixtures {
+
+    static final long SEED = 0x5eed_1234L;
+
+    // power of two, so a lookup cursor can wrap with a mask
+    static final int NUM_LOOKUPS = 4096;
+
+    final List<Node2> nodes;
+    final List<Link2> links;
+
+    private Fixtures(List<Node2> nodes, List<Link2> links) {
+        this.nodes = nodes;
+        this.links = links;
+    }
+
+    static Fixtures generate(int numNodes) {
+        var nodes = new ArrayList<Node2>(numNodes);
+        var links = new ArrayList<Link2>(numNodes);
+
+        var textDesc = NodeFactory.text();
+        var displayDesc = NodeFactory.displayText();
+
+        Node2 previousDisplay = null;
+        for (int i = 0; i + 1 < numNodes; i += 2) {
+            var text = new Node2(textDesc);
+            var display = new Node2(displayDesc);
+            nodes.add(text);
+            nodes.add(display);
+
+            // text out -> display '> text' in
+            links.add(text.outputs.get(0).connectTo(display.inputs.get(1)));
+            // previous display flow out -> display flow in
+            if (previousDisplay != null) {
+                links.add(previousDisplay.outputs.get(0).connectTo(display.inputs.get(0)));
+            }
+            previousDisplay = display;
+        }
+        if (nodes.size() < numNodes) {
+            nodes.add(new Node2(textDesc));
+        }
+        return new Fixtures(nodes, links);
+    }
+
+    /**
+     * Add all nodes and links to a new session. The objects can be added to a
+     * new session again later, adding only replaces their session handles.
+     */
+    EditorSession populate() {
+        var session = new EditorSession();
+        for (int i = 0; i < nodes.size(); i++) {
+            session.addNode(nodes.get(i));
+        }
+        for (int i = 0; i < links.size(); i++) {
+            session.addLink(links.get(i));
+        }
+        return session;
+    }
+
+    /**
+     * @return {@link #NUM_LOOKUPS} indices in [0, bound), from a fixed seed so runs are comparable
+     */
+    static int[] randomIndices(int bound) {
+        var random = new Random(SEED);
+        var indices = new int[NUM_LOOKUPS];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = random.nextInt(bound);
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,107 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.ui.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pin lookups and adjacency passes on the imnodes canvas {@link Graph}.
+ * The generated graph is a chain through all nodes, plus a fan-out link from each node to a random one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class GraphBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int numNodes;
+
+    private Graph graph;
+    private long[] inputPinIds;
+    private long[] outputPinIds;
+    private int[] traversalOrder;
+    private Graph.GraphNode first;
+    private Graph.GraphNode last;
+    private Graph.GraphNode spare;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = new Graph();
+        var nodes = new Graph.GraphNode[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            nodes[i] = graph.createGraphNode();
+        }
+
+        var random = new Random(Fixtures.SEED);
+        for (int i = 0; i < numNodes; i++) {
+            if (i + 1 < numNodes) {
+                graph.link(nodes[i], nodes[i + 1]);
+            }
+            graph.link(nodes[i], nodes[random.nextInt(numNodes)]);
+        }
+        first = nodes[0];
+        last = nodes[numNodes - 1];
+        // not linked to anything, so linking to it always creates a new link
+        spare = graph.createGraphNode();
+        traversalOrder = new int[graph.nodes.size()];
+
+        var indices = Fixtures.randomIndices(numNodes);
+        inputPinIds = new long[indices.length];
+        outputPinIds = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            inputPinIds[i] = nodes[indices[i]].getInputPinId();
+            outputPinIds[i] = nodes[indices[i]].getOutputPinId();
+        }
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = (cursor + 1) & (Fixtures.NUM_LOOKUPS - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Graph.GraphNode findByInput() {
+        return graph.findByInput(inputPinIds[next()]);
+    }
+
+    @Benchmark
+    public Graph.GraphNode findByOutput() {
+        return graph.findByOutput(outputPinIds[next()]);
+    }
+
+    /**
+     * A link change followed by a full adjacency rebuild, like the first render after an edit
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Graph.Adjacency relinkAndRebuildAdjacency() {
+        int linkId = graph.link(last, spare);
+        graph.unlink(linkId);
+        return graph.adjacency();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int traverseFromFirst() {
+        var adjacency = graph.adjacency();
+        return adjacency.reachableFrom(adjacency.indexOf(first.nodeId), traversalOrder);
+    }
+}
@@ -0,0 +1,51 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.ui.nodeeditor.NodeDesc;
+import lando.systems.game.ui.nodeeditor.NodeFactory;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantiating nodes from their descriptions, which copies the
+ * description's properties and creates the pins.
+ * Session sized batches are covered by {@link EditorSessionBenchmark#addNodesAndLinks()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class NodeDescBenchmark {
+
+    private NodeDesc textDesc;
+    private NodeDesc displayDesc;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        textDesc = NodeFactory.text();
+        displayDesc = NodeFactory.displayText();
+    }
+
+    @Benchmark
+    public Node2 createTextNode() {
+        return new Node2(textDesc);
+    }
+
+    @Benchmark
+    public Node2 createDisplayTextNode() {
+        return new Node2(displayDesc);
+    }
+}
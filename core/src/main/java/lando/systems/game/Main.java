@@ -272,6 +272,8 @@ public class Main extends ApplicationAdapter {
         canvasImNodes.dispose();
         canvasNodeEditor.dispose();
         imgui.dispose();
+        // last, so anything the canvases persisted on their way out is written
+        Util.prefs.dispose();
     }
 
     private void setActiveNodeCanvas(NodeCanvas.Type nodeCanvasType) {
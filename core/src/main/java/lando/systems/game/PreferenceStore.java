@@ -0,0 +1,257 @@
+package lando.systems.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.SerializationException;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.Timer;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Typed, write-behind cache in front of libGDX {@link Preferences}.
+ * <p>
+ * Reads are served from memory after the first lookup of a key. Writes only update the cache
+ * and mark the key dirty, dirty keys are encoded and flushed to disk together once writes have been
+ * quiet for {@link #FLUSH_DELAY} seconds (but no later than {@link #MAX_FLUSH_DELAY} after the first one),
+ * or on {@link #flush()} and {@link #dispose()}. Dirty values are encoded into the {@link Preferences} on the render thread,
+ * from a libGDX {@link Timer} task, and the preferences file is written by a background thread.
+ * <p>
+ * Values are encoded by a {@link Codec} looked up once per class: primitives map to the matching
+ * {@link Preferences} getter and setter, anything else is stored as a json string. Json values are
+ * only serialized when flushed, so an object that's written many times is serialized once.
+ * Since encoding is deferred, changes made to a written object before the next flush are persisted too.
+ */
+public class PreferenceStore implements Disposable {
+
+    private static final String TAG = PreferenceStore.class.getSimpleName();
+
+    /** seconds without writes before dirty values are flushed */
+    public static final float FLUSH_DELAY = 1f;
+    /** upper bound in seconds between the first unflushed write and the flush, so constant writes still get saved */
+    public static final float MAX_FLUSH_DELAY = 5f;
+
+    /**
+     * Reads and writes values of one type to a {@link Preferences} entry
+     */
+    public interface Codec<T> {
+        T read(Preferences prefs, String key);
+        void write(Preferences prefs, String key, T value);
+    }
+
+    private final Preferences prefs;
+    private final Json json;
+    private final Map<Class<?>, Codec<?>> codecs;
+    private final Map<String, Object> cache;
+    private final Set<String> dirty;
+    private final Timer.Task flushTask;
+    private final ExecutorService writer;
+    // set while a write to disk is queued and hasn't started, later flushes are covered by it
+    private final AtomicBoolean isWriteQueued;
+
+    // when the first write after the last flush happened, in millis
+    private long firstDirtyMillis;
+
+    public PreferenceStore(Preferences prefs, Json json) {
+        this.prefs = prefs;
+        this.json = json;
+        this.codecs = new HashMap<>();
+        this.cache = new HashMap<>();
+        this.dirty = new LinkedHashSet<>();
+        this.flushTask = new Timer.Task() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "preference-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.isWriteQueued = new AtomicBoolean(false);
+
+        register(Integer.class, new Codec<>() {
+            public Integer read(Preferences prefs, String key) { return prefs.getInteger(key); }
+            public void write(Preferences prefs, String key, Integer value) { prefs.putInteger(key, value); }
+        });
+        register(Long.class, new Codec<>() {
+            public Long read(Preferences prefs, String key) { return prefs.getLong(key); }
+            public void write(Preferences prefs, String key, Long value) { prefs.putLong(key, value); }
+        });
+        register(Float.class, new Codec<>() {
+            public Float read(Preferences prefs, String key) { return prefs.getFloat(key); }
+            public void write(Preferences prefs, String key, Float value) { prefs.putFloat(key, value); }
+        });
+        register(Boolean.class, new Codec<>() {
+            public Boolean read(Preferences prefs, String key) { return prefs.getBoolean(key); }
+            public void write(Preferences prefs, String key, Boolean value) { prefs.putBoolean(key, value); }
+        });
+        register(String.class, new Codec<>() {
+            public String read(Preferences prefs, String key) { return prefs.getString(key); }
+            public void write(Preferences prefs, String key, String value) { prefs.putString(key, value); }
+        });
+    }
+
+    /**
+     * Use a specific codec for a type, instead of the json fallback
+     */
+    public <T> void register(Class<T> clazz, Codec<T> codec) {
+        codecs.put(clazz, codec);
+    }
+
+    public boolean contains(String key) {
+        return cache.containsKey(key) || prefs.contains(key);
+    }
+
+    /**
+     * @return the value for the key, or the type's default value if it isn't set (0, false, "", or null for json types)
+     */
+    public <T> T get(String key, Class<T> clazz) {
+        var value = cache.get(key);
+        if (value == null) {
+            value = codec(clazz).read(prefs, key);
+            if (value == null) {
+                return null;
+            }
+            cache.put(key, value);
+        }
+        return clazz.cast(value);
+    }
+
+    /**
+     * @return the value for the key, or {@code defaultValue} if it isn't set
+     */
+    public <T> T get(String key, Class<T> clazz, T defaultValue) {
+        return contains(key) ? get(key, clazz) : defaultValue;
+    }
+
+    /**
+     * Update the value in memory, it's written to disk with the next flush
+     */
+    public <T> void put(String key, T value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        cache.put(key, value);
+        dirty.add(key);
+        scheduleFlush();
+    }
+
+    public void remove(String key) {
+        cache.remove(key);
+        dirty.remove(key);
+        prefs.remove(key);
+        scheduleFlush();
+    }
+
+    /**
+     * Encode dirty values now and queue a write of the preferences to disk
+     */
+    public void flush() {
+        flushTask.cancel();
+        firstDirtyMillis = 0;
+        for (var key : dirty) {
+            write(key, cache.get(key));
+        }
+        dirty.clear();
+        if (isWriteQueued.compareAndSet(false, true)) {
+            writer.execute(() -> {
+                isWriteQueued.set(false);
+                try {
+                    prefs.flush();
+                } catch (GdxRuntimeException e) {
+                    Gdx.app.error(TAG, "Failed to write preferences", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Flush and wait for the write to disk to finish
+     */
+    @Override
+    public void dispose() {
+        flush();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                Gdx.app.error(TAG, "Timed out waiting for preferences to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void write(String key, T value) {
+        var codec = (Codec<T>) codec(value.getClass());
+        codec.write(prefs, key, value);
+    }
+
+    private void scheduleFlush() {
+        long now = TimeUtils.millis();
+        if (!flushTask.isScheduled()) {
+            firstDirtyMillis = now;
+        }
+        // debounce, but don't keep pushing the flush back forever
+        float waited = (now - firstDirtyMillis) / 1000f;
+        float delay = Math.max(0f, Math.min(FLUSH_DELAY, MAX_FLUSH_DELAY - waited));
+        flushTask.cancel();
+        Timer.schedule(flushTask, delay);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Codec<T> codec(Class<T> clazz) {
+        var codec = (Codec<T>) codecs.get(clazz);
+        if (codec == null) {
+            codec = new JsonCodec<>(clazz);
+            codecs.put(clazz, codec);
+        }
+        return codec;
+    }
+
+    /**
+     * Fallback for types without a registered codec, stored as a json string
+     */
+    private class JsonCodec<T> implements Codec<T> {
+        private final Class<T> clazz;
+
+        JsonCodec(Class<T> clazz) {
+            this.clazz = clazz;
+        }
+
+        @Override
+        public T read(Preferences prefs, String key) {
+            var string = prefs.getString(key, null);
+            if (string == null) {
+                return null;
+            }
+            try {
+                return json.fromJson(clazz, string);
+            } catch (SerializationException e) {
+                throw new GdxRuntimeException(STR."Unable to deserialize preference \{key} from json as \{clazz.getSimpleName()}", e);
+            }
+        }
+
+        @Override
+        public void write(Preferences prefs, String key, T value) {
+            try {
+                prefs.putString(key, json.toJson(value, clazz));
+            } catch (SerializationException e) {
+                throw new GdxRuntimeException(STR."Unable to serialize preference \{key} to json as \{clazz.getSimpleName()}", e);
+            }
+        }
+    }
+}
@@ -1,16 +1,14 @@
 package lando.systems.game;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Preferences;
-import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Json;
-import com.badlogic.gdx.utils.SerializationException;
-import com.badlogic.gdx.utils.reflect.ClassReflection;
 import imgui.ImColor;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
 
 public class Util {
 
@@ -20,53 +18,26 @@ public class Util {
     public static final int IM_COLOR_WHITE = ImColor.rgba(1f, 1f, 1f, 1f);
     public static final int IM_COLOR_GRAY = ImColor.rgba(0.5f, 0.5f, 0.5f, 1f);
 
-    public static Preferences prefs;
+    public static PreferenceStore prefs;
     public static Json json;
 
     public static void init() {
-        Util.prefs = Gdx.app.getPreferences(PREFS_NAME);
         Util.json = new Json();
+        Util.prefs = new PreferenceStore(Gdx.app.getPreferences(PREFS_NAME), json);
     }
 
+    /**
+     * Served from memory after the first read, see {@link PreferenceStore}
+     */
     public static <T> T getPref(String prefName, Class<T> clazz) {
-        Object value;
-        if      (ClassReflection.isAssignableFrom(Integer.class, clazz)) value = prefs.getInteger(prefName);
-        else if (ClassReflection.isAssignableFrom(Long.class, clazz))    value = prefs.getLong(prefName);
-        else if (ClassReflection.isAssignableFrom(Float.class, clazz))   value = prefs.getFloat(prefName);
-        else if (ClassReflection.isAssignableFrom(Boolean.class, clazz)) value = prefs.getBoolean(prefName);
-        else if (ClassReflection.isAssignableFrom(String.class, clazz))  value = prefs.getString(prefName);
-        else {
-            try {
-                // try to deserialize from json string to clazz instance
-                Gdx.app.log(TAG, STR."Unsupported type \{clazz.getSimpleName()} for preference \{prefName}, trying to deserialize from json...");
-                return json.fromJson(clazz, prefs.getString(prefName));
-            } catch (SerializationException e) {
-                throw new GdxRuntimeException(STR."Unsupported type \{clazz.getSimpleName()} for preference \{prefName}, unable to deserialize from json");
-            }
-        }
-        return clazz.cast(value);
+        return prefs.get(prefName, clazz);
     }
 
+    /**
+     * Written to disk shortly after the last of a burst of writes, see {@link PreferenceStore}
+     */
     public static <T> void putPref(String prefName, T value) {
-        var clazz = value.getClass();
-        switch (value) {
-            case Integer i -> prefs.putInteger(prefName, i);
-            case Long    l -> prefs.putLong(prefName, l);
-            case Float   v -> prefs.putFloat(prefName, v);
-            case Boolean b -> prefs.putBoolean(prefName, b);
-            case String  s -> prefs.putString(prefName, s);
-            default -> {
-                try {
-                    // try to serialize to json string and store
-                    Gdx.app.log(TAG, STR."Unsupported type \{clazz.getSimpleName()} for preference \{prefName}, trying to serialize to json...");
-                    var str = json.toJson(value, clazz);
-                    prefs.putString(prefName, str);
-                } catch (SerializationException e) {
-                    throw new GdxRuntimeException(STR."Unsupported type \{clazz.getSimpleName()} for preference \{prefName}, unable to serialize to json");
-                }
-            }
-        }
-        prefs.flush();
+        prefs.put(prefName, value);
     }
 
     public static void openUrl(String url) {
@@ -89,13 +60,76 @@ public class Util {
     }
 
     public static File openFileDialog() {
+        return openFileDialog("JSON Files", "json");
+    }
+
+    /**
+     * @param description of the file filter, eg. "JSON Files"
+     * @param extensions accepted by the file filter, without the dot
+     * @return the selected file, or null if the dialog was cancelled
+     */
+    public static File openFileDialog(String description, String... extensions) {
+        return onSwingThread(() -> showOpenDialog(description, extensions));
+    }
+
+    private static File showOpenDialog(String description, String... extensions) {
         var fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Select a file");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("JSON Files", "json"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter(description, extensions));
         var result = fileChooser.showOpenDialog(null);
         if (result == JFileChooser.APPROVE_OPTION) {
             return fileChooser.getSelectedFile();
         }
         return null;
     }
+
+    /**
+     * @param description of the file filter, eg. "JSON Files"
+     * @param extensions accepted by the file filter, without the dot,
+     *                   the first one is appended if the chosen name doesn't have any of them
+     * @return the file to save to, or null if the dialog was cancelled
+     */
+    public static File saveFileDialog(String description, String... extensions) {
+        return onSwingThread(() -> showSaveDialog(description, extensions));
+    }
+
+    private static File showSaveDialog(String description, String... extensions) {
+        var fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save as");
+        fileChooser.setFileFilter(new FileNameExtensionFilter(description, extensions));
+        var result = fileChooser.showSaveDialog(null);
+        if (result != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+
+        var file = fileChooser.getSelectedFile();
+        var name = file.getName().toLowerCase();
+        for (var extension : extensions) {
+            if (name.endsWith(STR.".\{extension.toLowerCase()}")) {
+                return file;
+            }
+        }
+        return new File(file.getParentFile(), STR."\{file.getName()}.\{extensions[0]}");
+    }
+
+    /**
+     * Swing components have to be created and used on the event dispatch thread,
+     * so file dialogs run there while the calling thread, eg. a background task, waits for the result.
+     * @return the dialog's result, or null if the calling thread was interrupted while waiting
+     */
+    private static File onSwingThread(Supplier<File> dialog) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            return dialog.get();
+        }
+        var result = new File[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> result[0] = dialog.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException("File dialog failed", e.getCause());
+        }
+        return result[0];
+    }
 }
@@ -0,0 +1,189 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.Gdx;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Slow work like file dialogs, reads, parsing and serialization, run off the render thread
+ * so it never stalls a frame.
+ * <p>
+ * Tasks run one at a time on a shared background thread. The result is handed to the
+ * {@code onDone} callback on the render thread through {@link com.badlogic.gdx.Application#postRunnable(Runnable)},
+ * so it can be published to editor state in one step. Cancellation is cooperative, the work
+ * checks for it whenever it reports progress, and a cancelled task never runs its callback.
+ */
+public class BackgroundTask {
+
+    private static final String TAG = BackgroundTask.class.getSimpleName();
+
+    /** reported by {@link #getProgress()} while the amount of work isn't known */
+    public static final float INDETERMINATE = -1f;
+
+    public enum State { RUNNING, DONE, FAILED, CANCELLED }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        /**
+         * Runs on the background thread, must not touch render thread state
+         */
+        T run(BackgroundTask task) throws Exception;
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "background-task");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public final String description;
+
+    private volatile State state;
+    private volatile float progress;
+    private volatile String status;
+    private volatile boolean isCancelRequested;
+
+    private BackgroundTask(String description) {
+        this.description = description;
+        this.state = State.RUNNING;
+        this.progress = INDETERMINATE;
+        this.status = description;
+        this.isCancelRequested = false;
+    }
+
+    /**
+     * Run the work on the background thread, then pass its result to {@code onDone} on the render thread
+     */
+    public static <T> BackgroundTask submit(String description, Work<T> work, Consumer<T> onDone) {
+        var task = new BackgroundTask(description);
+        executor.execute(() -> task.run(work, onDone));
+        return task;
+    }
+
+    private <T> void run(Work<T> work, Consumer<T> onDone) {
+        T result;
+        try {
+            checkCancelled();
+            result = work.run(this);
+            checkCancelled();
+        } catch (CancellationException e) {
+            state = State.CANCELLED;
+            Gdx.app.log(TAG, STR."\{description}: cancelled");
+            return;
+        } catch (Exception e) {
+            state = State.FAILED;
+            Gdx.app.error(TAG, STR."\{description}: failed", e);
+            return;
+        }
+
+        Gdx.app.postRunnable(() -> {
+            // a cancel that came in while the result was queued still wins
+            if (isCancelRequested) {
+                state = State.CANCELLED;
+                Gdx.app.log(TAG, STR."\{description}: cancelled");
+                return;
+            }
+            try {
+                onDone.accept(result);
+                state = State.DONE;
+            } catch (Exception e) {
+                state = State.FAILED;
+                Gdx.app.error(TAG, STR."\{description}: failed", e);
+            }
+        });
+    }
+
+    // Render thread ----------------------------------------------------------
+
+    /**
+     * Ask the task to stop, it's cancelled at its next progress report or before its result is published
+     */
+    public void cancel() {
+        isCancelRequested = true;
+        status = "Cancelling";
+    }
+
+    public boolean isCancelRequested() {
+        return isCancelRequested;
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return progress as a percent: 0..1, or {@link #INDETERMINATE}
+     */
+    public float getProgress() {
+        return progress;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    // Background thread ------------------------------------------------------
+
+    public void setStatus(String status) {
+        if (!isCancelRequested) {
+            this.status = status;
+        }
+    }
+
+    /**
+     * Report progress, and stop the work if the task was cancelled
+     * @throws CancellationException if {@link #cancel()} was called
+     */
+    public void progress(long done, long total) {
+        checkCancelled();
+        progress = (total <= 0) ? INDETERMINATE : Math.min(1f, (float) done / total);
+    }
+
+    /**
+     * @throws CancellationException if {@link #cancel()} was called
+     */
+    public void checkCancelled() {
+        if (isCancelRequested) {
+            throw new CancellationException(description);
+        }
+    }
+
+    /**
+     * Wrap a reader so progress is reported as it's consumed
+     * @param total expected number of chars, the file size in bytes is a close enough estimate for utf-8
+     */
+    public Reader track(Reader reader, long total) {
+        return new FilterReader(reader) {
+            long numRead = 0;
+
+            @Override
+            public int read() throws IOException {
+                int c = super.read();
+                if (c != -1) {
+                    progress(++numRead, total);
+                }
+                return c;
+            }
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    numRead += n;
+                    progress(numRead, total);
+                }
+                return n;
+            }
+        };
+    }
+}
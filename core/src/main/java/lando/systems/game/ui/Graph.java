@@ -1,42 +1,383 @@
 package lando.systems.game.ui;
 
+import com.github.tommyettinger.ds.IntIntMap;
+import com.github.tommyettinger.ds.IntObjectMap;
+import com.github.tommyettinger.ds.LongIntMap;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Directed multi-edge graph for the imnodes canvas: any node's output can link to any number of
+ * other nodes' inputs. Links have stable ids, assigned once when created.
+ * <p>
+ * Links are stored as parallel int arrays; read-heavy passes like rendering and traversal
+ * should use {@link #adjacency()}, a compressed sparse row snapshot that's rebuilt in bulk
+ * the first time it's requested after the graph changed. Each node keeps the indices of its own links,
+ * so removing a node costs as much as the links it has, not as much as every link in the graph.
+ */
 public final class Graph {
+    private static final String ENCODING_VERSION = "1";
+
     public int nextNodeId = 1;
     public int nextPinId = 100;
+    public int nextLinkId = 1;
 
+    /**
+     * NOTE: read-only outside this class, use {@link #createGraphNode()} and {@link #removeNode(int)}
+     *  so the pin lookups and links stay in sync
+     */
     public final Map<Integer, GraphNode> nodes = new HashMap<>();
 
-    public Graph() {
-        final GraphNode first = createGraphNode();
-        final GraphNode second = createGraphNode();
-        first.outputNodeId = second.nodeId;
+    private final IntObjectMap<GraphNode> nodeByInputPin = new IntObjectMap<>();
+    private final IntObjectMap<GraphNode> nodeByOutputPin = new IntObjectMap<>();
+
+    // links, packed densely and swap-removed
+    private int[] linkIds = new int[16];
+    private int[] linkSources = new int[16];
+    private int[] linkTargets = new int[16];
+    // where each link sits in its source node's outgoing and its target node's incoming link indices
+    private int[] linkSourcePos = new int[16];
+    private int[] linkTargetPos = new int[16];
+    private int numLinks = 0;
+    private final IntIntMap linkIndexById = new IntIntMap();
+    // (source, target) node ids -> link id, a pair of nodes is linked at most once
+    private final LongIntMap linkIdByNodes = new LongIntMap();
+
+    private final Adjacency adjacency = new Adjacency();
+    private boolean isAdjacencyDirty = true;
+
+    /**
+     * @return a graph with two linked nodes, what the canvas starts out with
+     */
+    public static Graph starter() {
+        final Graph graph = new Graph();
+        final GraphNode first = graph.createGraphNode();
+        final GraphNode second = graph.createGraphNode();
+        graph.link(first, second);
+        return graph;
     }
 
     public GraphNode createGraphNode() {
         final GraphNode node = new GraphNode(nextNodeId++, nextPinId++, nextPinId++);
         this.nodes.put(node.nodeId, node);
+        this.nodeByInputPin.put(node.inputPinId, node);
+        this.nodeByOutputPin.put(node.outputPinId, node);
+        this.isAdjacencyDirty = true;
+        return node;
+    }
+
+    /**
+     * Remove the node and any links to or from it
+     * @return the removed node, or null if there was no node with the id
+     */
+    public GraphNode removeNode(final int nodeId) {
+        final GraphNode node = nodes.get(nodeId);
+        if (node == null) {
+            return null;
+        }
+
+        // only the node's own links are visited, removing one shrinks the node's lists from the end
+        while (node.numOutgoing > 0) {
+            removeLinkAt(node.outgoing[node.numOutgoing - 1]);
+        }
+        while (node.numIncoming > 0) {
+            removeLinkAt(node.incoming[node.numIncoming - 1]);
+        }
+
+        nodes.remove(nodeId);
+        nodeByInputPin.remove(node.inputPinId);
+        nodeByOutputPin.remove(node.outputPinId);
+        isAdjacencyDirty = true;
         return node;
     }
 
+    /**
+     * Link the source node's output to the target node's input
+     * @return the id of the new link, or -1 if the nodes were already linked that way
+     */
+    public int link(final GraphNode source, final GraphNode target) {
+        if (linkIdByNodes.containsKey(nodePairKey(source.nodeId, target.nodeId))) {
+            return -1;
+        }
+        final int linkId = nextLinkId++;
+        insertLink(linkId, source, target);
+        return linkId;
+    }
+
+    private void insertLink(final int linkId, final GraphNode source, final GraphNode target) {
+        if (numLinks == linkIds.length) {
+            int capacity = linkIds.length * 2;
+            linkIds = Arrays.copyOf(linkIds, capacity);
+            linkSources = Arrays.copyOf(linkSources, capacity);
+            linkTargets = Arrays.copyOf(linkTargets, capacity);
+            linkSourcePos = Arrays.copyOf(linkSourcePos, capacity);
+            linkTargetPos = Arrays.copyOf(linkTargetPos, capacity);
+        }
+
+        final int index = numLinks++;
+        linkIds[index] = linkId;
+        linkSources[index] = source.nodeId;
+        linkTargets[index] = target.nodeId;
+        linkSourcePos[index] = source.addOutgoing(index);
+        linkTargetPos[index] = target.addIncoming(index);
+        linkIndexById.put(linkId, index);
+        linkIdByNodes.put(nodePairKey(source.nodeId, target.nodeId), linkId);
+        isAdjacencyDirty = true;
+    }
+
+    /**
+     * @return true if there was a link with the id
+     */
+    public boolean unlink(final int linkId) {
+        final int index = linkIndexById.getOrDefault(linkId, -1);
+        if (index == -1) {
+            return false;
+        }
+        removeLinkAt(index);
+        isAdjacencyDirty = true;
+        return true;
+    }
+
+    private void removeLinkAt(final int index) {
+        // swap-remove from the nodes' link indices, fixing up the position of the link that moved
+        final GraphNode source = nodes.get(linkSources[index]);
+        final int sourcePos = linkSourcePos[index];
+        final int movedOut = source.outgoing[--source.numOutgoing];
+        source.outgoing[sourcePos] = movedOut;
+        linkSourcePos[movedOut] = sourcePos;
+
+        final GraphNode target = nodes.get(linkTargets[index]);
+        final int targetPos = linkTargetPos[index];
+        final int movedIn = target.incoming[--target.numIncoming];
+        target.incoming[targetPos] = movedIn;
+        linkTargetPos[movedIn] = targetPos;
+
+        linkIndexById.remove(linkIds[index]);
+        linkIdByNodes.remove(nodePairKey(linkSources[index], linkTargets[index]));
+
+        final int last = --numLinks;
+        if (index != last) {
+            linkIds[index] = linkIds[last];
+            linkSources[index] = linkSources[last];
+            linkTargets[index] = linkTargets[last];
+            linkSourcePos[index] = linkSourcePos[last];
+            linkTargetPos[index] = linkTargetPos[last];
+            linkIndexById.put(linkIds[index], index);
+            // the nodes of the moved link refer to it by its old index
+            nodes.get(linkSources[index]).outgoing[linkSourcePos[index]] = index;
+            nodes.get(linkTargets[index]).incoming[linkTargetPos[index]] = index;
+        }
+    }
+
+    public int getNumLinks() {
+        return numLinks;
+    }
+
     public GraphNode findByInput(final long inputPinId) {
-        for (GraphNode node : nodes.values()) {
-            if (node.getInputPinId() == inputPinId) {
-                return node;
+        return nodeByInputPin.get((int) inputPinId);
+    }
+
+    public GraphNode findByOutput(final long outputPinId) {
+        return nodeByOutputPin.get((int) outputPinId);
+    }
+
+    /**
+     * @return the compressed sparse row snapshot of the graph, rebuilt if the graph changed since the last call.
+     *  The returned instance is reused, its contents are only valid until the graph changes.
+     */
+    public Adjacency adjacency() {
+        if (isAdjacencyDirty) {
+            adjacency.rebuild(this);
+            isAdjacencyDirty = false;
+        }
+        return adjacency;
+    }
+
+    /**
+     * Compact text form of the graph topology, ids included, for persisting it.
+     * <pre>
+     * 1;nextNodeId,nextPinId,nextLinkId;nodeId,inputPinId,outputPinId ...;linkId,sourceNodeId,targetNodeId ...
+     * </pre>
+     */
+    public String encode() {
+        final StringBuilder builder = new StringBuilder(32 + 16 * (nodes.size() + numLinks));
+        builder.append(ENCODING_VERSION).append(';')
+            .append(nextNodeId).append(',').append(nextPinId).append(',').append(nextLinkId).append(';');
+        for (final GraphNode node : nodes.values()) {
+            builder.append(node.nodeId).append(',').append(node.inputPinId).append(',').append(node.outputPinId).append(' ');
+        }
+        builder.append(';');
+        for (int i = 0; i < numLinks; i++) {
+            builder.append(linkIds[i]).append(',').append(linkSources[i]).append(',').append(linkTargets[i]).append(' ');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the graph in {@code encoded}, see {@link #encode()}
+     * @throws IllegalArgumentException if it isn't a valid encoded graph
+     */
+    public static Graph decode(final String encoded) {
+        final String[] sections = encoded.split(";", -1);
+        if (sections.length != 4 || !sections[0].equals(ENCODING_VERSION)) {
+            throw new IllegalArgumentException("Not an encoded graph, or an unsupported version");
+        }
+        try {
+            final Graph graph = new Graph();
+            final int[] counters = ints(sections[1]);
+            graph.nextNodeId = counters[0];
+            graph.nextPinId = counters[1];
+            graph.nextLinkId = counters[2];
+
+            for (final String entry : sections[2].trim().split(" ")) {
+                if (entry.isEmpty()) continue;
+                final int[] ids = ints(entry);
+                final GraphNode node = new GraphNode(ids[0], ids[1], ids[2]);
+                graph.nodes.put(node.nodeId, node);
+                graph.nodeByInputPin.put(node.inputPinId, node);
+                graph.nodeByOutputPin.put(node.outputPinId, node);
+            }
+            for (final String entry : sections[3].trim().split(" ")) {
+                if (entry.isEmpty()) continue;
+                final int[] ids = ints(entry);
+                final GraphNode source = graph.nodes.get(ids[1]);
+                final GraphNode target = graph.nodes.get(ids[2]);
+                if (source == null || target == null) {
+                    throw new IllegalArgumentException("Link " + ids[0] + " refers to a missing node");
+                }
+                graph.insertLink(ids[0], source, target);
             }
+            return graph;
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed encoded graph", e);
         }
-        return null;
     }
 
-    public GraphNode findByOutput(final long outputPinId) {
-        for (GraphNode node : nodes.values()) {
-            if (node.getOutputPinId() == outputPinId) {
-                return node;
+    private static int[] ints(final String csv) {
+        final String[] parts = csv.split(",");
+        final int[] values = new int[3];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Integer.parseInt(parts[i]);
+        }
+        return values;
+    }
+
+    private static long nodePairKey(final int sourceNodeId, final int targetNodeId) {
+        return ((long) sourceNodeId << 32) | (targetNodeId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Outgoing links of every node in compressed sparse row form.
+     * Nodes are referred to by their index in [0, numNodes), the links out of node {@code i}
+     * are the entries in [{@code offsets[i]}, {@code offsets[i + 1]}) of {@code targets} and {@code linkIds}.
+     */
+    public static final class Adjacency {
+        public int numNodes;
+        public int numLinks;
+
+        // per node index
+        public int[] nodeIds = new int[0];
+        public int[] inputPinIds = new int[0];
+        public int[] outputPinIds = new int[0];
+        public int[] offsets = new int[1];
+
+        // per link, grouped by source node
+        public int[] targets = new int[0];
+        public int[] linkIds = new int[0];
+
+        private final IntIntMap indexByNodeId = new IntIntMap();
+
+        // traversal scratch, stamps avoid clearing a visited array per traversal
+        private int[] visitStamps = new int[0];
+        private int visitStamp = 0;
+
+        /**
+         * @return the index of the node with the id, or -1
+         */
+        public int indexOf(final int nodeId) {
+            return indexByNodeId.getOrDefault(nodeId, -1);
+        }
+
+        /**
+         * Breadth first traversal along outgoing links
+         * @param order filled with the indices of the nodes reachable from the start node, including itself, in visit order.
+         *  Must have room for {@code numNodes} entries.
+         * @return the number of node indices written to {@code order}
+         */
+        public int reachableFrom(final int startIndex, final int[] order) {
+            if (++visitStamp == 0) {
+                Arrays.fill(visitStamps, 0);
+                visitStamp = 1;
+            }
+
+            int head = 0;
+            int tail = 0;
+            order[tail++] = startIndex;
+            visitStamps[startIndex] = visitStamp;
+            while (head < tail) {
+                final int node = order[head++];
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    final int target = targets[e];
+                    if (visitStamps[target] != visitStamp) {
+                        visitStamps[target] = visitStamp;
+                        order[tail++] = target;
+                    }
+                }
+            }
+            return tail;
+        }
+
+        private void rebuild(final Graph graph) {
+            numNodes = graph.nodes.size();
+            numLinks = graph.numLinks;
+
+            if (nodeIds.length < numNodes) {
+                nodeIds = new int[numNodes];
+                inputPinIds = new int[numNodes];
+                outputPinIds = new int[numNodes];
+                visitStamps = new int[numNodes];
+                visitStamp = 0;
+            }
+            if (offsets.length < numNodes + 1) {
+                offsets = new int[numNodes + 1];
             }
+            if (targets.length < numLinks) {
+                targets = new int[numLinks];
+                linkIds = new int[numLinks];
+            }
+
+            indexByNodeId.clear();
+            int index = 0;
+            for (final GraphNode node : graph.nodes.values()) {
+                nodeIds[index] = node.nodeId;
+                inputPinIds[index] = node.inputPinId;
+                outputPinIds[index] = node.outputPinId;
+                indexByNodeId.put(node.nodeId, index);
+                index++;
+            }
+
+            // counting sort of the links by source node: count, prefix sum, scatter
+            Arrays.fill(offsets, 0, numNodes + 1, 0);
+            for (int i = 0; i < numLinks; i++) {
+                offsets[indexOf(graph.linkSources[i]) + 1]++;
+            }
+            for (int i = 0; i < numNodes; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            // offsets[i] is used as the insertion cursor for node i, then shifted back into place
+            for (int i = 0; i < numLinks; i++) {
+                final int source = indexOf(graph.linkSources[i]);
+                final int slot = offsets[source]++;
+                targets[slot] = indexOf(graph.linkTargets[i]);
+                linkIds[slot] = graph.linkIds[i];
+            }
+            for (int i = numNodes; i > 0; i--) {
+                offsets[i] = offsets[i - 1];
+            }
+            offsets[0] = 0;
         }
-        return null;
     }
 
     public static final class GraphNode {
@@ -44,7 +385,11 @@ public final class Graph {
         public final int inputPinId;
         public final int outputPinId;
 
-        public int outputNodeId = -1;
+        // indices of the links into this node's input and out of its output, in the graph's link arrays
+        private int[] incoming = new int[2];
+        private int[] outgoing = new int[2];
+        private int numIncoming = 0;
+        private int numOutgoing = 0;
 
         public GraphNode(final int nodeId, final int inputPinId, final int outputPintId) {
             this.nodeId = nodeId;
@@ -52,6 +397,28 @@ public final class Graph {
             this.outputPinId = outputPintId;
         }
 
+        /**
+         * @return where the link index was put in the node's incoming links
+         */
+        private int addIncoming(final int linkIndex) {
+            if (numIncoming == incoming.length) {
+                incoming = Arrays.copyOf(incoming, incoming.length * 2);
+            }
+            incoming[numIncoming] = linkIndex;
+            return numIncoming++;
+        }
+
+        /**
+         * @return where the link index was put in the node's outgoing links
+         */
+        private int addOutgoing(final int linkIndex) {
+            if (numOutgoing == outgoing.length) {
+                outgoing = Arrays.copyOf(outgoing, outgoing.length * 2);
+            }
+            outgoing[numOutgoing] = linkIndex;
+            return numOutgoing++;
+        }
+
         public int getInputPinId() {
             return inputPinId;
         }
@@ -60,6 +427,22 @@ public final class Graph {
             return outputPinId;
         }
 
+        public int getNumIncoming() {
+            return numIncoming;
+        }
+
+        public int getNumOutgoing() {
+            return numOutgoing;
+        }
+
+        public boolean hasIncoming() {
+            return numIncoming > 0;
+        }
+
+        public boolean hasOutgoing() {
+            return numOutgoing > 0;
+        }
+
         public String getName() {
             return "Node " + (char) (64 + nodeId);
         }
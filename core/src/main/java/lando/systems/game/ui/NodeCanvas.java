@@ -5,8 +5,6 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Disposable;
 import lando.systems.game.Util;
 
-import java.io.File;
-import java.io.IOException;
 import java.nio.file.Files;
 
 public abstract class NodeCanvas implements Disposable {
@@ -25,18 +23,21 @@ public abstract class NodeCanvas implements Disposable {
     public abstract void render();
 
     public void load() {
-        var file = Util.openFileDialog();
-        if (file != null) {
-            try {
-                var fileContent = new String(Files.readAllBytes(file.toPath()));
-                Gdx.app.log("BlueprintEditor", "Loaded file: " + file.getPath());
+        // the file dialog blocks, so it runs in the background along with the read
+        BackgroundTask.submit("Load", task -> {
+            var file = Util.openFileDialog();
+            if (file == null) {
+                Gdx.app.log("BlueprintEditor", "No file selected");
+                return null;
+            }
+            var fileContent = Files.readString(file.toPath());
+            Gdx.app.log("BlueprintEditor", "Loaded file: " + file.getPath());
+            return fileContent;
+        }, fileContent -> {
+            if (fileContent != null) {
                 Gdx.app.log("BlueprintEditor", "File content: " + fileContent);
-            } catch (IOException e) {
-                Gdx.app.error("BlueprintEditor", "Failed to read file", e);
             }
-        } else {
-            Gdx.app.log("BlueprintEditor", "No file selected");
-        }
+        });
     }
 
     public void save() {
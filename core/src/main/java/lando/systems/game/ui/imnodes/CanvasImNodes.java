@@ -1,5 +1,6 @@
 package lando.systems.game.ui.imnodes;
 
+import com.badlogic.gdx.Gdx;
 import imgui.ImColor;
 import imgui.ImGui;
 import imgui.extension.imnodes.ImNodes;
@@ -20,6 +21,7 @@ public class CanvasImNodes extends NodeCanvas {
 
     private static final String TAG = CanvasImNodes.class.getSimpleName();
     private static final String PREF_EDITOR_STATE = "node-canvas-editor-state";
+    private static final String PREF_GRAPH = "node-canvas-graph";
     private static final String URL = "https://github.com/Nelarius/imnodes/tree/master/example";
     private static final String REPO = "Nelarius/imnodes";
 
@@ -41,20 +43,23 @@ public class CanvasImNodes extends NodeCanvas {
         }
     }
 
-    final Graph graph;
     final ImInt linkA;
     final ImInt linkB;
+    final ImNodesEditorState editorState;
+
+    Graph graph;
+    boolean isGraphChanged;
 
     ImNodesEditorContext context;
     ImNodesStyle style;
-    String editorState;
 
     public CanvasImNodes(ImGuiCore imgui) {
         super(imgui);
-        this.graph = new Graph();
+        this.graph = Graph.starter();
         this.linkA = new ImInt();
         this.linkB = new ImInt();
-        this.editorState = "";
+        this.editorState = new ImNodesEditorState();
+        this.isGraphChanged = false;
     }
 
     @Override
@@ -72,10 +77,14 @@ public class CanvasImNodes extends NodeCanvas {
 //        style.setColors(ImNodesCol.TitleBar, NodeStyle.Color.title);
 //        style.setColors(ImNodesCol.TitleBarHovered, NodeStyle.Color.titleHovered);
 //        style.setColors(ImNodesCol.TitleBarSelected, NodeStyle.Color.titleSelected);
+
+        // pick up the graph and layout from the last run
+        load();
     }
 
     @Override
     public void dispose() {
+        save();
         ImNodes.editorContextFree(context);
         ImNodes.destroyContext();
     }
@@ -116,7 +125,7 @@ public class CanvasImNodes extends NodeCanvas {
                     ImGui.text(node.getName());
                     ImNodes.endNodeTitleBar();
 
-                    var hasIncoming = graph.nodes.values().stream().anyMatch(n -> n.outputNodeId == node.nodeId);
+                    var hasIncoming = node.hasIncoming();
                     var inColor = hasIncoming ? ImColor.rgb("#ccffcc") : ImColor.rgb("#66ff66");
                     var inShape = hasIncoming ? ImNodesPinShape.CircleFilled : ImNodesPinShape.QuadFilled;
                     ImNodes.pushColorStyle(ImNodesCol.Pin, inColor);
@@ -127,7 +136,7 @@ public class CanvasImNodes extends NodeCanvas {
 
                     ImGui.sameLine();
 
-                    var hasOutgoing = (node.outputNodeId != -1);
+                    var hasOutgoing = node.hasOutgoing();
                     var outColor = hasOutgoing ? ImColor.rgb("#ccccff") : ImColor.rgb("#6666ff");
                     var outShape = hasOutgoing ? ImNodesPinShape.CircleFilled : ImNodesPinShape.QuadFilled;
                     ImNodes.pushColorStyle(ImNodesCol.Pin, outColor);
@@ -143,10 +152,11 @@ public class CanvasImNodes extends NodeCanvas {
             ImNodes.popColorStyle();
             ImNodes.popColorStyle();
 
-            int uniqueLinkId = 1;
-            for (var node : graph.nodes.values()) {
-                if (graph.nodes.containsKey(node.outputNodeId)) {
-                    ImNodes.link(uniqueLinkId++, node.getOutputPinId(), graph.nodes.get(node.outputNodeId).getInputPinId());
+            var adjacency = graph.adjacency();
+            for (int source = 0; source < adjacency.numNodes; source++) {
+                int outputPinId = adjacency.outputPinIds[source];
+                for (int e = adjacency.offsets[source]; e < adjacency.offsets[source + 1]; e++) {
+                    ImNodes.link(adjacency.linkIds[e], outputPinId, adjacency.inputPinIds[adjacency.targets[e]]);
                 }
             }
 
@@ -158,11 +168,22 @@ public class CanvasImNodes extends NodeCanvas {
             if (ImNodes.isLinkCreated(linkA, linkB)) {
                 var source = graph.findByOutput(linkA.get());
                 var target = graph.findByInput(linkB.get());
-                if (source != null && target != null && source.outputNodeId != target.nodeId) {
-                    source.outputNodeId = target.nodeId;
+                if (source != null && target != null) {
+                    isGraphChanged |= graph.link(source, target) != -1;
                 }
             }
 
+            if (ImNodes.isLinkDestroyed(linkA)) {
+                isGraphChanged |= graph.unlink(linkA.get());
+            }
+
+            // nodes are dragged and the canvas is panned with the mouse, so layout can only have changed on a release
+            boolean isMouseReleased = ImGui.isMouseReleased(ImGuiMouseButton.Left)
+                                   || ImGui.isMouseReleased(ImGuiMouseButton.Middle);
+            if (isGraphChanged || (isMouseReleased && isEditorHovered)) {
+                save();
+            }
+
             if (ImGui.isMouseClicked(ImGuiMouseButton.Right)) {
                 int hoveredNode = ImNodes.getHoveredNode();
                 if (hoveredNode != -1) {
@@ -177,7 +198,8 @@ public class CanvasImNodes extends NodeCanvas {
                 int targetNode = ImGui.getStateStorage().getInt(ImGui.getID("delete_node_id"));
                 if (ImGui.beginPopup("node_context")) {
                     if (ImGui.button(STR."Delete \{graph.nodes.get(targetNode).getName()}")) {
-                        graph.nodes.remove(targetNode);
+                        graph.removeNode(targetNode);
+                        isGraphChanged = true;
                         ImGui.closeCurrentPopup();
                     }
                     ImGui.endPopup();
@@ -188,6 +210,7 @@ public class CanvasImNodes extends NodeCanvas {
                 if (ImGui.button("Create New Node")) {
                     var node = graph.createGraphNode();
                     ImNodes.setNodeScreenSpacePos(node.nodeId, ImGui.getMousePosX(), ImGui.getMousePosY());
+                    isGraphChanged = true;
                     ImGui.closeCurrentPopup();
                 }
                 ImGui.endPopup();
@@ -198,22 +221,46 @@ public class CanvasImNodes extends NodeCanvas {
         ImGui.popFont();
     }
 
-    // TODO(brian): load and save are broken currently, I think it has to do with 'dataLength'
-    //  tried both string length (num characters) and byte length (num bytes)
-    //  crashes in both cases so I'm clearly missing something
-//    @Override
-//    public void load() {
-//        if (false) {
-//            editorState = Util.getPref(PREF_EDITOR_STATE, String.class);
-//            ImNodes.loadEditorStateFromIniString(context, editorState, editorState.getBytes().length);
-//        }
-//    }
-//
-//    @Override
-//    public void save() {
-//        if (false) {
-//            editorState = ImNodes.saveEditorStateToIniString(context);
-//            Util.putPref(PREF_EDITOR_STATE, editorState);
-//        }
-//    }
+    /**
+     * Restore the graph and its layout as they were last saved
+     */
+    @Override
+    public void load() {
+        // decoded fresh every time, the live graph keeps changing after it's saved
+        Graph savedGraph = null;
+        var encodedGraph = Util.prefs.get(PREF_GRAPH, String.class, "");
+        if (!encodedGraph.isEmpty()) {
+            try {
+                savedGraph = Graph.decode(encodedGraph);
+                graph = savedGraph;
+            } catch (IllegalArgumentException e) {
+                Gdx.app.error(TAG, STR."Ignoring saved graph, \{e.getMessage()}");
+            }
+        }
+
+        var ini = Util.prefs.get(PREF_EDITOR_STATE, String.class, "");
+        if (!ini.isEmpty()) {
+            ImNodes.editorContextSet(context);
+            editorState.restore(ini);
+        }
+        // a fresh default graph hasn't been saved yet
+        isGraphChanged = (savedGraph == null);
+    }
+
+    /**
+     * Persist the graph if it changed and the layout if anything moved, the preference store writes them to disk shortly after
+     */
+    @Override
+    public void save() {
+        if (isGraphChanged) {
+            // encoded now, so the stored graph is the one that was saved rather than whatever the live graph became
+            Util.putPref(PREF_GRAPH, graph.encode());
+            isGraphChanged = false;
+        }
+
+        ImNodes.editorContextSet(context);
+        if (editorState.capture(graph)) {
+            Util.putPref(PREF_EDITOR_STATE, editorState.ini());
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package lando.systems.game.ui.imnodes;
+
+import com.github.tommyettinger.ds.IntIntMap;
+import imgui.ImVec2;
+import imgui.extension.imnodes.ImNodes;
+import lando.systems.game.ui.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Node positions and panning of an imnodes editor, as an ini string in the same layout imnodes uses:
+ * <pre>
+ * [editor]
+ * panning=x,y
+ * [node.id]
+ * origin=x,y
+ * </pre>
+ * The string is cached and {@link #capture(Graph)} only rebuilds it when a node moved, the set of nodes
+ * changed, or the canvas was panned, so it can be called whenever the state might have changed.
+ * <p>
+ * Restoring parses the string in java and applies it through {@link ImNodes#setNodeGridSpacePos(int, float, float)}
+ * and {@link ImNodes#editorContextResetPanning(float, float)}, rather than through
+ * {@code ImNodes.loadEditorStateFromIniString()}, which crashes the native side.
+ * Both directions work on the current editor context.
+ */
+class ImNodesEditorState {
+
+    // returned by parseInt() for anything that isn't a number
+    private static final int INVALID = Integer.MIN_VALUE;
+
+    private final ImVec2 scratch = new ImVec2();
+    private final StringBuilder builder = new StringBuilder();
+
+    // last captured state, positions are in grid space and rounded like imnodes rounds them
+    private final IntIntMap indexByNodeId = new IntIntMap();
+    private int[] nodeIds = new int[16];
+    private int[] positions = new int[16 * 2];
+    private int numNodes = 0;
+    private int panX = 0;
+    private int panY = 0;
+
+    private String ini = "";
+
+    /**
+     * @return the ini string as of the last {@link #capture(Graph)} or {@link #restore(String)}
+     */
+    public String ini() {
+        return ini;
+    }
+
+    /**
+     * Read positions and panning from the editor, and rebuild the ini string if any of them changed
+     * @return true if the ini string changed
+     */
+    public boolean capture(Graph graph) {
+        boolean isChanged = graph.nodes.size() != numNodes;
+
+        ImNodes.editorContextGetPanning(scratch);
+        int x = Math.round(scratch.x);
+        int y = Math.round(scratch.y);
+        isChanged |= x != panX || y != panY;
+        panX = x;
+        panY = y;
+
+        if (positions.length < graph.nodes.size() * 2) {
+            int capacity = Math.max(graph.nodes.size(), nodeIds.length * 2);
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            positions = Arrays.copyOf(positions, capacity * 2);
+        }
+
+        // positions are compared against the slot the node had in the last capture, if it had one
+        int index = 0;
+        for (var node : graph.nodes.values()) {
+            ImNodes.getNodeGridSpacePos(node.nodeId, scratch);
+            x = Math.round(scratch.x);
+            y = Math.round(scratch.y);
+            int previous = indexByNodeId.getOrDefault(node.nodeId, -1);
+            isChanged |= previous != index || positions[index * 2] != x || positions[index * 2 + 1] != y;
+
+            nodeIds[index] = node.nodeId;
+            positions[index * 2] = x;
+            positions[index * 2 + 1] = y;
+            index++;
+        }
+        numNodes = index;
+
+        if (!isChanged) {
+            return false;
+        }
+
+        indexByNodeId.clear();
+        builder.setLength(0);
+        builder.append("[editor]\npanning=").append(panX).append(',').append(panY).append('\n');
+        for (int i = 0; i < numNodes; i++) {
+            indexByNodeId.put(nodeIds[i], i);
+            builder.append("[node.").append(nodeIds[i]).append("]\norigin=")
+                .append(positions[i * 2]).append(',').append(positions[i * 2 + 1]).append('\n');
+        }
+        ini = builder.toString();
+        return true;
+    }
+
+    /**
+     * Apply an ini string to the editor, nodes don't have to exist in the graph yet.
+     * Lines that aren't understood are skipped.
+     */
+    public void restore(String ini) {
+        this.ini = ini;
+        // force the next capture to rebuild and compare against what the editor actually has
+        indexByNodeId.clear();
+        numNodes = -1;
+
+        int nodeId = INVALID;
+        boolean isEditorSection = false;
+        for (var rawLine : ini.split("\n")) {
+            var line = rawLine.trim();
+            if (line.startsWith("[") && line.endsWith("]")) {
+                isEditorSection = line.equals("[editor]");
+                nodeId = line.startsWith("[node.") ? parseInt(line.substring(6, line.length() - 1)) : INVALID;
+                continue;
+            }
+
+            int equals = line.indexOf('=');
+            int comma = line.indexOf(',');
+            if (equals == -1 || comma < equals) continue;
+
+            var key = line.substring(0, equals);
+            int x = parseInt(line.substring(equals + 1, comma));
+            int y = parseInt(line.substring(comma + 1));
+            if (x == INVALID || y == INVALID) continue;
+
+            if (isEditorSection && key.equals("panning")) {
+                ImNodes.editorContextResetPanning(x, y);
+            } else if (nodeId != INVALID && key.equals("origin")) {
+                ImNodes.setNodeGridSpacePos(nodeId, x, y);
+            }
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return INVALID;
+        }
+    }
+}
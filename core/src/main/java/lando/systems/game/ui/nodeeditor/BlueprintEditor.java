@@ -1,5 +1,6 @@
 package lando.systems.game.ui.nodeeditor;
 
+import com.badlogic.gdx.Gdx;
 import imgui.ImGui;
 import imgui.ImVec2;
 import imgui.extension.nodeditor.NodeEditor;
@@ -8,34 +9,116 @@ import imgui.extension.nodeditor.NodeEditorContext;
 import imgui.flag.ImGuiStyleVar;
 import imgui.flag.ImGuiWindowFlags;
 import imgui.type.ImBoolean;
+import lando.systems.game.Util;
+import lando.systems.game.ui.BackgroundTask;
 import lando.systems.game.ui.ImGuiCore;
 import lando.systems.game.ui.NodeCanvas;
+import lando.systems.game.ui.nodeeditor.exec.ExecutionPlan;
+import lando.systems.game.ui.nodeeditor.exec.PlanCompiler;
+import lando.systems.game.ui.nodeeditor.io.BinaryBlueprintFormat;
+import lando.systems.game.ui.nodeeditor.io.BlueprintDocument;
+import lando.systems.game.ui.nodeeditor.io.JsonBlueprintFormat;
+import lando.systems.game.ui.nodeeditor.io.SessionJournal;
 import lando.systems.game.ui.nodeeditor.objects.Link2;
 import lando.systems.game.ui.nodeeditor.objects.Node2;
 import lando.systems.game.ui.nodeeditor.panels.EditorPane;
 import lando.systems.game.ui.nodeeditor.panels.InfoPane;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public class BlueprintEditor extends NodeCanvas {
 
     private static final String TAG = BlueprintEditor.class.getSimpleName();
     private static final String SETTINGS_FILE = "node-editor.json";
+    private static final String RECOVERY_DIR = "recovery";
 
     public static final String URL = "https://github.com/thedmd/imgui-node-editor/tree/master/examples";
     public static final String REPO = "thedmd/imgui-node-editor";
 
     public final ImBoolean showOrdinals;
     public final ImBoolean showMetricsWindow;
+    public final ImBoolean cullOffscreen;
+    public final Map<String, NodeDesc> nodeRegistry;
 
     public InfoPane infoPane;
     public EditorPane editorPane;
     public EditorSession session;
     public NodeEditorContext context;
+    public SessionJournal journal;
+    public UndoHistory history;
+    public PlanCompiler planCompiler;
+
+    /** text displayed by the last {@link #run()} */
+    public final List<String> output = new ArrayList<>();
+    private final ExecutionPlan.Output planOutput = new ExecutionPlan.Output() {
+        @Override
+        public void display(Node2 node, String text) {
+            output.add(text);
+            session.touchNode(node);
+        }
+
+        @Override
+        public void linkTraversed(Link2 link) {
+            flow(link);
+        }
+    };
+    public BackgroundTask fileTask;
+
+    /**
+     * Set by {@link #zoomToContent()}. The node editor only fits nodes that were submitted in the last frame,
+     * so the editor pane submits every node while this is set, culled or not, and navigates once they're in
+     */
+    public boolean isZoomToContentPending;
 
+    // where the session journal lives, null for the default local directory if journaling is on
+    private final Path recoveryDir;
+    private final boolean isJournaled;
+
+    /**
+     * An editor that recovers the last session from, and journals edits to, the local recovery directory
+     */
     public BlueprintEditor(ImGuiCore imgui) {
+        this(imgui, null, true);
+    }
+
+    /**
+     * @param recoveryDir directory to recover the last session from and journal edits to,
+     *                    or null to start empty and not journal at all, eg. for benchmarks and tools
+     */
+    public BlueprintEditor(ImGuiCore imgui, Path recoveryDir) {
+        this(imgui, recoveryDir, recoveryDir != null);
+    }
+
+    private BlueprintEditor(ImGuiCore imgui, Path recoveryDir, boolean isJournaled) {
         super(imgui);
+        this.recoveryDir = recoveryDir;
+        this.isJournaled = isJournaled;
         this.showOrdinals = new ImBoolean();
         this.showMetricsWindow = new ImBoolean();
+        this.cullOffscreen = new ImBoolean(true);
         this.session = new EditorSession();
+        this.nodeRegistry = new HashMap<>();
+
+        List.of(
+              NodeFactory.text()
+            , NodeFactory.displayText()
+//            , NodeFactory.displayChoice()
+//            , ...
+        ).forEach(nodeDesc -> {
+            if (nodeRegistry.containsKey(nodeDesc.type)) {
+                throw new IllegalStateException(STR."Duplicate node type: \{nodeDesc.type}");
+            }
+
+            nodeRegistry.put(nodeDesc.type, nodeDesc);
+        });
     }
 
     @Override
@@ -49,18 +132,43 @@ public class BlueprintEditor extends NodeCanvas {
 
         infoPane = new InfoPane(this);
         editorPane = new EditorPane(this);
+
+        // pick up where the last run left off, then journal edits from here on
+        if (isJournaled) {
+            var directory = (recoveryDir != null) ? recoveryDir : Gdx.files.local(RECOVERY_DIR).file().toPath();
+            journal = new SessionJournal(directory);
+            int numRecords = journal.recover(session, nodeRegistry);
+            if (!session.nodes.isEmpty()) {
+                Gdx.app.log(TAG, STR."Recovered \{session.nodes.size()} nodes and \{session.links.size()} links, replayed \{numRecords} journal records");
+            }
+            journal.start(session);
+        }
+
+        // recovered nodes are where undo starts from
+        history = new UndoHistory(session);
+        session.addSessionListener(history);
+
+        planCompiler = new PlanCompiler(session);
+        session.addSessionListener(planCompiler);
     }
 
     @Override
     public void dispose() {
+        if (journal != null) {
+            journal.close();
+        }
         NodeEditor.destroyEditor(context);
     }
 
     @Override
     public void update() {
         float dt = ImGui.getIO().getDeltaTime();
-        session.updateTouch(dt);
+        session.updateEffects(dt);
         session.updateSelections();
+        if (journal != null) {
+            journal.update(dt);
+        }
+        history.update();
         infoPane.update();
     }
 
@@ -96,12 +204,133 @@ public class BlueprintEditor extends NodeCanvas {
         ImGui.popStyleVar(2);
     }
 
+    /**
+     * @return true while a load or save is running in the background
+     */
+    public boolean isFileTaskRunning() {
+        return fileTask != null && fileTask.isRunning();
+    }
+
+    @Override
+    public void load() {
+        if (isFileTaskRunning()) {
+            return;
+        }
+
+        // choosing, reading and parsing the file all happen off the render thread,
+        // the finished document replaces the session in one go on the render thread.
+        // NOTE: that means the whole document is held next to the nodes created from it until it's instantiated,
+        //  streaming records into the session would have to parse on the render thread instead
+        fileTask = BackgroundTask.submit("Load", task -> {
+            task.setStatus("Choosing file");
+            var file = Util.openFileDialog("Blueprint Files", BinaryBlueprintFormat.EXTENSION, JsonBlueprintFormat.EXTENSION);
+            if (file == null) {
+                Gdx.app.log(TAG, "No file selected");
+                return null;
+            }
+
+            task.setStatus(STR."Reading \{file.getName()}");
+            var path = file.toPath();
+            if (isJson(file)) {
+                var document = new BlueprintDocument();
+                try (var reader = task.track(Files.newBufferedReader(path, StandardCharsets.UTF_8), Files.size(path))) {
+                    JsonBlueprintFormat.read(reader, document);
+                }
+                return document;
+            }
+            return BinaryBlueprintFormat.read(path, task);
+        }, document -> {
+            if (document == null) {
+                return;
+            }
+            NodeEditor.setCurrentEditor(context);
+            // the journal snapshots the loaded document once, instead of recording every node it adds
+            Runnable replace = () -> {
+                session.clear();
+                document.instantiate(session, nodeRegistry);
+            };
+            if (journal != null) {
+                journal.replaceSession(replace);
+            } else {
+                replace.run();
+            }
+            // a loaded document starts a new history, rather than being a step that undo removes
+            history.clear();
+            Gdx.app.log(TAG, STR."Loaded \{session.nodes.size()} nodes and \{session.links.size()} links");
+        });
+    }
+
+    @Override
+    public void save() {
+        if (isFileTaskRunning()) {
+            return;
+        }
+
+        // node positions live in the node editor, so the session is captured here,
+        // then the file dialog and serialization run in the background
+        NodeEditor.setCurrentEditor(context);
+        var document = BlueprintDocument.capture(session);
+
+        fileTask = BackgroundTask.submit("Save", task -> {
+            task.setStatus("Choosing file");
+            var file = Util.saveFileDialog("Blueprint Files", BinaryBlueprintFormat.EXTENSION, JsonBlueprintFormat.EXTENSION);
+            if (file == null) {
+                Gdx.app.log(TAG, "No file selected");
+                return null;
+            }
+
+            // write next to the target and swap it in when done, a cancelled or failed save leaves the old file intact
+            task.setStatus(STR."Writing \{file.getName()}");
+            var path = file.toPath();
+            var temp = path.resolveSibling(STR."\{file.getName()}.tmp");
+            try {
+                if (isJson(file)) {
+                    try (var writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                        JsonBlueprintFormat.write(document, writer, task);
+                    }
+                } else {
+                    BinaryBlueprintFormat.write(document, temp, task);
+                }
+                task.checkCancelled();
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return file;
+        }, file -> {
+            if (file != null) {
+                Gdx.app.log(TAG, STR."Saved \{document.nodes.size()} nodes and \{document.links.size()} links to \{file.getPath()}");
+            }
+        });
+    }
+
+    private static boolean isJson(File file) {
+        return file.getName().toLowerCase().endsWith(STR.".\{JsonBlueprintFormat.EXTENSION}");
+    }
+
+    /**
+     * Fit the view to every node, on the next frame, see {@link #isZoomToContentPending}
+     */
     public void zoomToContent() {
-        NodeEditor.navigateToContent(1);
+        isZoomToContentPending = true;
+    }
+
+    /**
+     * Run the session's execution plan, compiling it first if the graph changed since the last run,
+     * and animate the links it passes through
+     */
+    public void run() {
+        NodeEditor.setCurrentEditor(context);
+        var plan = planCompiler.plan();
+        output.clear();
+        plan.run(planOutput);
+        if (plan.numSkipped() > 0) {
+            Gdx.app.log(TAG, STR."Skipped \{plan.numSkipped()} nodes that are part of a cycle");
+        }
     }
 
     public void flow(Link2 link) {
-        // TODO(brian):
+        NodeEditor.flow(link.globalId);
     }
 
     public void navigateToSelection() {
@@ -1,7 +1,7 @@
 package lando.systems.game.ui.nodeeditor;
 
 import com.badlogic.gdx.Gdx;
-import com.github.tommyettinger.ds.support.sort.LongComparators;
+import com.github.tommyettinger.ds.LongObjectMap;
 import imgui.extension.nodeditor.NodeEditor;
 import lando.systems.game.ui.nodeeditor.objects.EditorObject;
 import lando.systems.game.ui.nodeeditor.objects.Link2;
@@ -10,157 +10,640 @@ import lando.systems.game.ui.nodeeditor.objects.Pin2;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
-import java.util.stream.LongStream;
-import java.util.stream.Stream;
+import java.util.Set;
 
 public class EditorSession {
 
-    private final Map<Long, EditorObject> objectByGlobalId;
-    private final Map<Long, Float> nodeTouchTime;
-    private final float touchTime = 1f;
-
-    public final List<Node2> nodes;
-    public final List<Link2> links;
-
+    private final LongObjectMap<EditorObject> objectByGlobalId;
+    // incident link adjacency, keyed by pin or node global id
+    // a pin is either an input or an output so it only needs one list,
+    // nodes track incoming and outgoing links separately
+    private final LongObjectMap<List<Link2>> linksByPin;
+    private final LongObjectMap<List<Link2>> linksIntoNode;
+    private final LongObjectMap<List<Link2>> linksOutOfNode;
+
+    public final SlotMap<Node2> nodes;
+    public final SlotMap<Pin2> pins;
+    public final SlotMap<Link2> links;
+    public final TimedEffects effects;
+    public final NodeSpatialIndex spatialIndex;
+    // section bounds for every node, indexed by node slot
+    public final SectionBoundsStore bounds;
+    // labels and string property values of the session's nodes, deduplicated
+    public final StringPool strings;
+
+    // nodes that haven't been rendered yet, so they have no bounds in the spatial index
+    private final Set<Node2> unmeasuredNodes;
+
+    // selection buffers are reused between updates, so they're usually
+    // bigger than the selection; iterate using the `numSelectedX` counts
     public long[] selectedNodes;
     public long[] selectedLinks;
     public int numSelectedNodes;
     public int numSelectedLinks;
 
+    // scratch buffers for reading the native selection
+    private long[] queryNodes;
+    private long[] queryLinks;
+
+    // selection membership by slot map slot, for constant time `isSelected()`
+    private BitSet selectedNodeSlots;
+    private BitSet nextNodeSlots;
+    private final BitSet selectedLinkSlots;
+
+    // last committed canvas position of each node, (x, y) by slot, NaN until the first commit
+    private float[] positions;
+
+    private final List<SessionListener> sessionListeners;
+
+    // selection change details, reused between notifications
+    private final List<SelectionListener> selectionListeners;
+    private long[] addedNodes;
+    private long[] removedNodes;
+    private int numAddedNodes;
+    private int numRemovedNodes;
+
     public EditorSession() {
-        this.objectByGlobalId = new HashMap<>();
-        this.nodeTouchTime = new TreeMap<>(LongComparators.NATURAL_COMPARATOR);
-        this.nodes = new ArrayList<>();
-        this.links = new ArrayList<>();
+        this.objectByGlobalId = new LongObjectMap<>();
+        this.linksByPin = new LongObjectMap<>();
+        this.linksIntoNode = new LongObjectMap<>();
+        this.linksOutOfNode = new LongObjectMap<>();
+        this.nodes = new SlotMap<>();
+        this.pins = new SlotMap<>();
+        this.links = new SlotMap<>();
+        this.effects = new TimedEffects();
+        this.spatialIndex = new NodeSpatialIndex();
+        this.bounds = new SectionBoundsStore();
+        this.strings = new StringPool();
+        this.unmeasuredNodes = new LinkedHashSet<>();
+        this.positions = new float[16 * 2];
+        this.sessionListeners = new ArrayList<>();
+
+        this.selectedNodes = new long[16];
+        this.selectedLinks = new long[16];
+        this.queryNodes = new long[16];
+        this.queryLinks = new long[16];
+        this.selectedNodeSlots = new BitSet();
+        this.nextNodeSlots = new BitSet();
+        this.selectedLinkSlots = new BitSet();
+        this.selectionListeners = new ArrayList<>();
+        this.addedNodes = new long[16];
+        this.removedNodes = new long[16];
     }
 
     // Editor object management -----------------------------------------------
 
+    /**
+     * Notified after the session's nodes, pins, links, node properties or committed node positions change,
+     * eg. to journal edits. Callbacks run on the render thread, in the order the changes happen.
+     * Pins and links removed along with their node are covered by {@link #nodeRemoved(Node2)}, which is called
+     * while they're still attached, and nodes removed by {@link #clear()} are reported once, through {@link #sessionCleared()}.
+     * Pins added or removed on their own are reported after the links attached to them.
+     */
+    public interface SessionListener {
+        default void nodeAdded(Node2 node) {}
+        default void nodeRemoved(Node2 node) {}
+        default void pinAdded(Pin2 pin) {}
+        default void pinRemoved(Pin2 pin) {}
+        default void linkAdded(Link2 link) {}
+        default void linkRemoved(Link2 link) {}
+        /**
+         * @param oldValue null if the key was added
+         * @param value null if the key was removed
+         */
+        default void propertyChanged(Node2 node, String key, String oldValue, String value) {}
+        /**
+         * @param fromX NaN, along with fromY, for the first commit after the node was added
+         */
+        default void nodeMoved(Node2 node, float fromX, float fromY, float x, float y) {}
+        default void sessionCleared() {}
+    }
+
+    public void addSessionListener(SessionListener listener) {
+        sessionListeners.add(listener);
+    }
+
+    public void removeSessionListener(SessionListener listener) {
+        sessionListeners.remove(listener);
+    }
+
     public void addNode(Node2 node) {
-        var _existingNode = findNode(node.globalId);
-        if (_existingNode.isPresent()) {
-            var existingNode = _existingNode.get();
+        var existingNode = getNode(node.globalId);
+        if (existingNode != null) {
             Gdx.app.log(this.getClass().getSimpleName(), STR."Failed to add, node already exists: \{existingNode}");
             return;
         }
 
-        nodes.add(node);
+        node.handle = nodes.insert(node);
+        // a reused slot still holds the bounds of the node that was removed from it
+        bounds.reset(node.slot());
+        node.bounds = bounds;
+        node.session = this;
+        resetPosition(node.slot());
         objectByGlobalId.put(node.globalId, node);
+        unmeasuredNodes.add(node);
+        acquireStrings(node);
 
-        node.inputs.forEach(this::addPin);
-        node.outputs.forEach(this::addPin);
+        node.inputs.forEach(this::insertPin);
+        node.outputs.forEach(this::insertPin);
+
+        for (var listener : sessionListeners) {
+            listener.nodeAdded(node);
+        }
     }
 
+    /**
+     * Add a pin back to its node after {@link #removePin(Pin2)}
+     */
     public void addPin(Pin2 pin) {
+        if (pins.contains(pin.handle)) {
+            return;
+        }
+        insertPin(pin);
+        for (var listener : sessionListeners) {
+            listener.pinAdded(pin);
+        }
+    }
+
+    private void insertPin(Pin2 pin) {
+        pin.handle = pins.insert(pin);
         objectByGlobalId.put(pin.globalId, pin);
     }
 
     public void addLink(Link2 link) {
-        links.add(link);
+        link.handle = links.insert(link);
         objectByGlobalId.put(link.globalId, link);
+
+        addIncident(linksByPin, link.src.globalId, link);
+        addIncident(linksByPin, link.dst.globalId, link);
+        addIncident(linksOutOfNode, link.src.node.globalId, link);
+        addIncident(linksIntoNode, link.dst.node.globalId, link);
+
+        for (var listener : sessionListeners) {
+            listener.linkAdded(link);
+        }
     }
 
+    /**
+     * Remove the node, its pins, and any links attached to those pins
+     */
     public void removeNode(Node2 node) {
+        if (!nodes.contains(node.handle)) {
+            // stale handle, the node isn't part of this session
+            return;
+        }
+
+        // notify before the pins go, so listeners still see the links that are about to be removed with it
+        for (var listener : sessionListeners) {
+            listener.nodeRemoved(node);
+        }
+        var listeners = detachSessionListeners();
+        removeNodeSilently(node);
+        sessionListeners.addAll(listeners);
+    }
+
+    private void removeNodeSilently(Node2 node) {
         node.inputs.forEach(this::removePin);
         node.outputs.forEach(this::removePin);
 
-        nodes.remove(node);
+        selectedNodeSlots.clear(SlotMap.slot(node.handle));
+        effects.stopAll(node.globalId);
+        spatialIndex.remove(node);
+        unmeasuredNodes.remove(node);
+        nodes.remove(node.handle);
+        node.handle = SlotMap.NONE;
+        node.bounds = SectionBoundsStore.DETACHED;
+        node.session = null;
         objectByGlobalId.remove(node.globalId);
+        linksIntoNode.remove(node.globalId);
+        linksOutOfNode.remove(node.globalId);
+        releaseStrings(node);
     }
 
+    /**
+     * Swap the node's strings for pooled instances, so nodes loaded or edited with equal strings share them
+     */
+    private void acquireStrings(Node2 node) {
+        node.label = strings.acquire(node.label);
+        for (var pin : node.inputs) {
+            pin.label = strings.acquire(pin.label);
+        }
+        for (var pin : node.outputs) {
+            pin.label = strings.acquire(pin.label);
+        }
+        // replacing the value of an existing key doesn't invalidate the iteration
+        for (var entry : node.props.strings.entrySet()) {
+            var value = strings.acquire(entry.getValue());
+            if (value != entry.getValue()) {
+                node.props.strings.put(entry.getKey(), value);
+            }
+        }
+    }
+
+    private void releaseStrings(Node2 node) {
+        strings.release(node.label);
+        for (var pin : node.inputs) {
+            strings.release(pin.label);
+        }
+        for (var pin : node.outputs) {
+            strings.release(pin.label);
+        }
+        for (var value : node.props.strings.values()) {
+            strings.release(value);
+        }
+    }
+
+    /**
+     * Remove the pin and any links attached to it
+     */
     public void removePin(Pin2 pin) {
+        if (!pins.contains(pin.handle)) {
+            return;
+        }
+        var incident = linksByPin.get(pin.globalId);
+        if (incident != null) {
+            // removeLink() modifies the incident list, so walk it backwards
+            for (int i = incident.size() - 1; i >= 0; i--) {
+                removeLink(incident.get(i));
+            }
+        }
+
+        pins.remove(pin.handle);
+        pin.handle = SlotMap.NONE;
         objectByGlobalId.remove(pin.globalId);
+        linksByPin.remove(pin.globalId);
+
+        for (var listener : sessionListeners) {
+            listener.pinRemoved(pin);
+        }
     }
 
     public void removeLink(Link2 link) {
-        links.remove(link);
+        if (links.remove(link.handle) == null) {
+            // stale handle, the link isn't part of this session
+            return;
+        }
+        selectedLinkSlots.clear(SlotMap.slot(link.handle));
+        effects.stopAll(link.globalId);
+        link.handle = SlotMap.NONE;
         objectByGlobalId.remove(link.globalId);
+
+        removeIncident(linksByPin, link.src.globalId, link);
+        removeIncident(linksByPin, link.dst.globalId, link);
+        removeIncident(linksOutOfNode, link.src.node.globalId, link);
+        removeIncident(linksIntoNode, link.dst.node.globalId, link);
+
+        for (var listener : sessionListeners) {
+            listener.linkRemoved(link);
+        }
+    }
+
+    /**
+     * Remove all nodes, pins and links, eg. before loading a document
+     */
+    public void clear() {
+        // removing a node takes its pins and links with it
+        var listeners = detachSessionListeners();
+        while (!nodes.isEmpty()) {
+            removeNodeSilently(nodes.get(nodes.size() - 1));
+        }
+        sessionListeners.addAll(listeners);
+        numSelectedNodes = 0;
+        numSelectedLinks = 0;
+
+        for (var listener : sessionListeners) {
+            listener.sessionCleared();
+        }
+    }
+
+    /**
+     * Detach listeners for the duration of a compound change that was already reported as a whole,
+     * re-attach them by adding the returned list back
+     */
+    private List<SessionListener> detachSessionListeners() {
+        if (sessionListeners.isEmpty()) {
+            return Collections.emptyList();
+        }
+        var listeners = new ArrayList<>(sessionListeners);
+        sessionListeners.clear();
+        return listeners;
+    }
+
+    // Node edits -------------------------------------------------------------
+
+    /**
+     * Set a string property on the node, and notify session listeners
+     * @param value null to remove the property
+     */
+    public void setProperty(Node2 node, String key, String value) {
+        if (!nodes.contains(node.handle)) {
+            if (value == null) {
+                node.props.strings.remove(key);
+            } else {
+                node.props.strings.put(key, value);
+            }
+            return;
+        }
+        value = strings.acquire(value);
+        var oldValue = (value == null) ? node.props.strings.remove(key) : node.props.strings.put(key, value);
+        strings.release(oldValue);
+        for (var listener : sessionListeners) {
+            listener.propertyChanged(node, key, oldValue, value);
+        }
+    }
+
+    /**
+     * Move the node to the specified canvas position and commit it, see {@link #commitPosition(Node2)}
+     */
+    public void moveNode(Node2 node, float x, float y) {
+        NodeEditor.setNodePosition(node.globalId, x, y);
+        commitPosition(node, x, y);
+    }
+
+    /**
+     * Read the node's position back from the node editor and notify session listeners if it changed
+     * since the last commit. Positions change every frame while a node is dragged,
+     * so this is called once the drag is over rather than tracking every intermediate position.
+     */
+    public void commitPosition(Node2 node) {
+        commitPosition(node, NodeEditor.getNodePositionX(node.globalId), NodeEditor.getNodePositionY(node.globalId));
+    }
+
+    private void commitPosition(Node2 node, float x, float y) {
+        if (!nodes.contains(node.handle)) {
+            return;
+        }
+        int p = node.slot() * 2;
+        float fromX = positions[p];
+        float fromY = positions[p + 1];
+        if (fromX == x && fromY == y) {
+            return;
+        }
+        positions[p] = x;
+        positions[p + 1] = y;
+
+        for (var listener : sessionListeners) {
+            listener.nodeMoved(node, fromX, fromY, x, y);
+        }
+    }
+
+    private void resetPosition(int slot) {
+        int p = slot * 2;
+        if (p + 1 >= positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(p + 2, positions.length * 2));
+        }
+        positions[p] = Float.NaN;
+        positions[p + 1] = Float.NaN;
+    }
+
+    private static void addIncident(LongObjectMap<List<Link2>> index, long globalId, Link2 link) {
+        var incident = index.get(globalId);
+        if (incident == null) {
+            incident = new ArrayList<>(2);
+            index.put(globalId, incident);
+        }
+        incident.add(link);
+    }
+
+    private static void removeIncident(LongObjectMap<List<Link2>> index, long globalId, Link2 link) {
+        var incident = index.get(globalId);
+        if (incident != null) {
+            incident.remove(link);
+        }
     }
 
     // Query methods ----------------------------------------------------------
+    // NOTE: the `get` variants return null instead of allocating an `Optional`,
+    //  prefer them for lookups that happen every frame, like link creation
+
+    public Node2 getNode(long globalId) {
+        return (objectByGlobalId.get(globalId) instanceof Node2 node) ? node : null;
+    }
+
+    public Link2 getLink(long globalId) {
+        return (objectByGlobalId.get(globalId) instanceof Link2 link) ? link : null;
+    }
+
+    public Pin2 getPin(long globalId) {
+        return (objectByGlobalId.get(globalId) instanceof Pin2 pin) ? pin : null;
+    }
 
     public Optional<Node2> findNode(long globalId) {
-        var object = objectByGlobalId.get(globalId);
-        return Optional.ofNullable(object)
-            .filter(Node2.class::isInstance)
-            .map(Node2.class::cast);
+        return Optional.ofNullable(getNode(globalId));
     }
 
     public Optional<Link2> findLink(long globalId) {
-        var object = objectByGlobalId.get(globalId);
-        return Optional.ofNullable(object)
-            .filter(Link2.class::isInstance)
-            .map(Link2.class::cast);
+        return Optional.ofNullable(getLink(globalId));
     }
 
     public Optional<Pin2> findPin(long globalId) {
-        var object = objectByGlobalId.get(globalId);
-        return Optional.ofNullable(object)
-            .filter(Pin2.class::isInstance)
-            .map(Pin2.class::cast);
+        return Optional.ofNullable(getPin(globalId));
+    }
+
+    // Spatial queries --------------------------------------------------------
+
+    /**
+     * Sync the spatial index with the node's bounds, call after the node was rendered
+     * @return true if the node moved or changed size
+     */
+    public boolean updateBounds(Node2 node) {
+        int slot = node.slot();
+        if (node.bounds != bounds || !bounds.isMeasured(slot)) {
+            // not part of this session, or not laid out yet
+            return false;
+        }
+        if (!unmeasuredNodes.isEmpty()) {
+            unmeasuredNodes.remove(node);
+        }
+        var section = Node2.Section.NODE;
+        return spatialIndex.update(node,
+            bounds.minX(slot, section), bounds.minY(slot, section),
+            bounds.maxX(slot, section), bounds.maxY(slot, section));
+    }
+
+    /**
+     * @return nodes that were added but haven't been rendered yet, so they aren't in the spatial index
+     */
+    public Collection<Node2> getUnmeasuredNodes() {
+        return Collections.unmodifiableCollection(unmeasuredNodes);
+    }
+
+    // Adjacency queries ------------------------------------------------------
+    // NOTE: returned lists are read-only views of the live adjacency index,
+    //  copy them before removing any of the links they contain
+
+    /**
+     * @return the links attached to the specified pin
+     */
+    public List<Link2> getLinks(Pin2 pin) {
+        return readOnly(linksByPin.get(pin.globalId));
+    }
+
+    /**
+     * @return the links whose destination pin belongs to the specified node
+     */
+    public List<Link2> getLinksInto(Node2 node) {
+        return readOnly(linksIntoNode.get(node.globalId));
+    }
+
+    /**
+     * @return the links whose source pin belongs to the specified node
+     */
+    public List<Link2> getLinksOutOf(Node2 node) {
+        return readOnly(linksOutOfNode.get(node.globalId));
+    }
+
+    public boolean isLinked(Pin2 pin) {
+        var incident = linksByPin.get(pin.globalId);
+        return incident != null && !incident.isEmpty();
+    }
+
+    private static List<Link2> readOnly(List<Link2> incident) {
+        return (incident == null) ? Collections.emptyList() : Collections.unmodifiableList(incident);
     }
 
     // Selection methods ------------------------------------------------------
 
-    public Stream<Node2> getSelectedNodes() {
-        return LongStream.of(selectedNodes)
-            .mapToObj(objectByGlobalId::get)
-            .filter(Node2.class::isInstance)
-            .map(Node2.class::cast);
+    /**
+     * Notified from {@link #updateSelections()} when the set of selected nodes changes.
+     * The id arrays are reused between notifications, only the first {@code numX} entries are valid.
+     * Nodes that are removed from the session while selected are not reported.
+     */
+    public interface SelectionListener {
+        void selectionChanged(long[] addedNodes, int numAdded, long[] removedNodes, int numRemoved);
+    }
+
+    public void addSelectionListener(SelectionListener listener) {
+        selectionListeners.add(listener);
     }
 
-    public Stream<Link2> getSelectedLinks() {
-        return LongStream.of(selectedLinks)
-            .mapToObj(objectByGlobalId::get)
-            .filter(Link2.class::isInstance)
-            .map(Link2.class::cast);
+    public void removeSelectionListener(SelectionListener listener) {
+        selectionListeners.remove(listener);
+    }
+
+    /**
+     * @param index in [0, numSelectedNodes)
+     * @return the selected node, or null if it's no longer part of the session
+     */
+    public Node2 getSelectedNode(int index) {
+        return getNode(selectedNodes[index]);
+    }
+
+    /**
+     * @param index in [0, numSelectedLinks)
+     * @return the selected link, or null if it's no longer part of the session
+     */
+    public Link2 getSelectedLink(int index) {
+        return getLink(selectedLinks[index]);
     }
 
     public void updateSelections() {
+        // the selection buffers are only refreshed when native selection actually changed
+        if (!NodeEditor.hasSelectionChanged()) {
+            return;
+        }
+
         // selected objects are tracked together in native code,
         // so the selected id arrays are always the same length
         // and can be bigger than the actual counts for either type
         int totalCount = NodeEditor.getSelectedObjectCount();
-        selectedNodes = new long[totalCount];
-        selectedLinks = new long[totalCount];
+        if (queryNodes.length < totalCount) {
+            int capacity = Math.max(totalCount, queryNodes.length * 2);
+            queryNodes = new long[capacity];
+            queryLinks = new long[capacity];
+        }
 
         // populate the arrays with the selected object ids and get the counts by type
-        numSelectedNodes = NodeEditor.getSelectedNodes(selectedNodes, totalCount);
-        numSelectedLinks = NodeEditor.getSelectedLinks(selectedLinks, totalCount);
+        int numNodes = NodeEditor.getSelectedNodes(queryNodes, totalCount);
+        int numLinks = NodeEditor.getSelectedLinks(queryLinks, totalCount);
+        applySelection(queryNodes, numNodes, queryLinks, numLinks);
+    }
 
-        // (optional) trim the arrays to the actual counts
-        // this is not strictly necessary, but can be useful
-        // so we don't need to remember to iterate using `numSelectedX` counts
-        // instead of `selected[Nodes|Links].length` like one would expect
-        if (numSelectedNodes < totalCount) {
-            selectedNodes = Arrays.copyOf(selectedNodes, numSelectedNodes);
+    /**
+     * Replace the current selection with the specified ids, updating the selection bitsets
+     * and notifying selection listeners. This doesn't touch the native editor selection,
+     * {@link #updateSelections()} uses it to mirror the native selection on the java side.
+     * NOTE: the arrays can be bigger than the counts, only the first {@code numX} entries are used
+     */
+    public void applySelection(long[] nodeIds, int numNodes, long[] linkIds, int numLinks) {
+        // nodes: diff against the previous selection using slot-indexed bitsets
+        numAddedNodes = 0;
+        numRemovedNodes = 0;
+        nextNodeSlots.clear();
+        for (int i = 0; i < numNodes; i++) {
+            var node = getNode(nodeIds[i]);
+            if (node == null) continue;
+
+            int slot = SlotMap.slot(node.handle);
+            nextNodeSlots.set(slot);
+            if (!selectedNodeSlots.get(slot)) {
+                addedNodes = append(addedNodes, numAddedNodes++, node.globalId);
+            }
         }
-        if (numSelectedLinks < totalCount) {
-            selectedLinks = Arrays.copyOf(selectedLinks, numSelectedLinks);
+        for (int i = 0; i < numSelectedNodes; i++) {
+            var node = getNode(selectedNodes[i]);
+            if (node == null) continue;
+
+            int slot = SlotMap.slot(node.handle);
+            if (!nextNodeSlots.get(slot)) {
+                removedNodes = append(removedNodes, numRemovedNodes++, node.globalId);
+            }
         }
-    }
+        var previousNodeSlots = selectedNodeSlots;
+        selectedNodeSlots = nextNodeSlots;
+        nextNodeSlots = previousNodeSlots;
+
+        selectedNodes = copyInto(selectedNodes, nodeIds, numNodes);
+        numSelectedNodes = numNodes;
+
+        // links: nobody needs a diff, just rebuild the bitset
+        selectedLinkSlots.clear();
+        for (int i = 0; i < numLinks; i++) {
+            var link = getLink(linkIds[i]);
+            if (link != null) {
+                selectedLinkSlots.set(SlotMap.slot(link.handle));
+            }
+        }
+        selectedLinks = copyInto(selectedLinks, linkIds, numLinks);
+        numSelectedLinks = numLinks;
 
-    public boolean isSelected(Node2 node) {
-        for (int i = 0 ; i < numSelectedNodes ; i++) {
-            if (selectedNodes[i] == node.globalId) {
-                return true;
+        if (numAddedNodes > 0 || numRemovedNodes > 0) {
+            for (var listener : selectionListeners) {
+                listener.selectionChanged(addedNodes, numAddedNodes, removedNodes, numRemovedNodes);
             }
         }
-        return false;
     }
 
-    public boolean isSelected(Link2 link) {
-        for (int i = 0 ; i < numSelectedLinks ; i++) {
-            if (selectedLinks[i] == link.globalId) {
-                return true;
-            }
+    private static long[] append(long[] ids, int index, long id) {
+        if (index == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[index] = id;
+        return ids;
+    }
+
+    private static long[] copyInto(long[] dst, long[] src, int count) {
+        if (dst.length < count) {
+            dst = new long[Math.max(count, dst.length * 2)];
         }
-        return false;
+        System.arraycopy(src, 0, dst, 0, count);
+        return dst;
+    }
+
+    public boolean isSelected(Node2 node) {
+        return nodes.contains(node.handle)
+            && selectedNodeSlots.get(SlotMap.slot(node.handle));
+    }
+
+    public boolean isSelected(Link2 link) {
+        return links.contains(link.handle)
+            && selectedLinkSlots.get(SlotMap.slot(link.handle));
     }
 
     public void select(Node2 node) {
@@ -183,26 +666,23 @@ public class EditorSession {
         NodeEditor.clearSelection();
     }
 
-    // Touch handling ---------------------------------------------------------
+    // Timed effects ----------------------------------------------------------
 
     public void touchNode(Node2 node) {
-        nodeTouchTime.put(node.globalId, touchTime);
+        effects.start(TimedEffects.Effect.TOUCH, node.globalId);
     }
 
     /**
      * Convert touch time for the specified node to a percent: 0..1
      */
     public float getTouchProgress(Node2 node) {
-        float time = nodeTouchTime.getOrDefault(node.globalId, 0f);
-        if (time > 0f) {
-            return (touchTime - time) / touchTime;
-        }
-        return time;
+        return effects.progress(TimedEffects.Effect.TOUCH, node.globalId);
     }
 
-    public void updateTouch(float dt) {
-        // java's map interface doesn't allow direct modification
-        // of values while iterating, so we'll do it this way...
-        nodeTouchTime.replaceAll((id, time) -> (time > 0f) ? (time - dt) : time);
+    /**
+     * Advance running effect timers, only objects that are currently animating are visited
+     */
+    public void updateEffects(float dt) {
+        effects.update(dt);
     }
 }
@@ -2,6 +2,7 @@ package lando.systems.game.ui.nodeeditor;
 
 import imgui.ImColor;
 import lando.systems.game.ui.nodeeditor.objects.NodeProperties;
+import lando.systems.game.ui.nodeeditor.objects.PropertySchema;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +13,19 @@ public class NodeDesc {
     public int color = ImColor.rgba(1f, 1f, 1f, 1f);
     public List<PinDesc> inputs = new ArrayList<>();
     public List<PinDesc> outputs = new ArrayList<>();
-    public NodeProperties props = new NodeProperties();
+    /** default property values, frozen once the first node is created from this desc */
+    public final NodeProperties props = new NodeProperties();
+
+    private PropertySchema schema;
+
+    /**
+     * Slot layout shared by every node of this type, compiled from {@link #props} the first time it's needed
+     */
+    public PropertySchema schema() {
+        if (schema == null) {
+            schema = PropertySchema.compile(props);
+        }
+        return schema;
+    }
 
 }
@@ -5,6 +5,11 @@ import lando.systems.game.ui.nodeeditor.objects.PinType;
 
 public class NodeFactory {
 
+    // node types and property keys that the execution plan compiler gives meaning to
+    public static final String TEXT = "Text";
+    public static final String DISPLAY_TEXT = "Display Text";
+    public static final String TEXT_PROPERTY = "Text";
+
     public static PinDesc flowPin(int nodeEditorPinKind) {
         return new PinDesc(nodeEditorPinKind, PinType.FLOW);
     }
@@ -20,7 +25,7 @@ public class NodeFactory {
     public static NodeDesc displayText() {
         var node = new NodeDesc();
 
-        node.type = "Display Text";
+        node.type = DISPLAY_TEXT;
 
         node.inputs.add(flowPin(NodeEditorPinKind.Input));
         node.outputs.add(flowPin(NodeEditorPinKind.Output));
@@ -33,8 +38,8 @@ public class NodeFactory {
     public static NodeDesc text() {
         var node = new NodeDesc();
 
-        node.type = "Text";
-        node.props.strings.put("Text", "Hello, World!");
+        node.type = TEXT;
+        node.props.strings.put(TEXT_PROPERTY, "Hello, World!");
 
         node.outputs.add(stringOutPin("text >"));
 
@@ -0,0 +1,367 @@
+package lando.systems.game.ui.nodeeditor;
+
+import com.github.tommyettinger.ds.LongObjectMap;
+import imgui.ImVec2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Uniform grid of node rectangles in canvas space, for range, point, nearest-node and free-space
+ * queries without scanning every node.
+ * <p>
+ * Entries are indexed by the slot of the node's {@link SlotMap} handle, and only cells that contain
+ * something are allocated. {@link #update(Node2, float, float, float, float)} is incremental:
+ * an unchanged rectangle is a no-op, and cell membership only changes when the node crosses a cell edge.
+ */
+public class NodeSpatialIndex {
+
+    public static final float DEFAULT_CELL_SIZE = 256f;
+
+    // how far (in rings of candidate positions) to look for free space before giving up
+    private static final int MAX_FREE_SPACE_RINGS = 64;
+    // same for nearest node queries, bounds the search when the distance limit is huge
+    private static final int MAX_NEAREST_RINGS = 1024;
+
+    private static class Cell {
+        int[] slots = new int[4];
+        int size = 0;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final float cellSize;
+    private final LongObjectMap<Cell> cells;
+
+    // per-slot entries: node, rect (minX, minY, maxX, maxY) and covered cell range (x0, y0, x1, y1)
+    private Node2[] nodes;
+    private float[] rects;
+    private int[] cellRanges;
+    // stamps are used to visit each node once per query, even when it spans several cells
+    private int[] queryStamps;
+    private int queryStamp;
+    private int count;
+
+    public NodeSpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public NodeSpatialIndex(float cellSize) {
+        this.cellSize = cellSize;
+        this.cells = new LongObjectMap<>();
+        this.nodes = new Node2[64];
+        this.rects = new float[64 * 4];
+        this.cellRanges = new int[64 * 4];
+        this.queryStamps = new int[64];
+        this.queryStamp = 0;
+        this.count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean contains(Node2 node) {
+        int slot = SlotMap.slot(node.handle);
+        return node.handle != SlotMap.NONE && slot < nodes.length && nodes[slot] == node;
+    }
+
+    /**
+     * Insert the node or update its rectangle, in canvas space
+     * @return true if the rectangle changed
+     */
+    public boolean update(Node2 node, float minX, float minY, float maxX, float maxY) {
+        if (node.handle == SlotMap.NONE) {
+            // not part of a session
+            return false;
+        }
+
+        int slot = SlotMap.slot(node.handle);
+        ensureCapacity(slot + 1);
+
+        int r = slot * 4;
+        boolean isIndexed = nodes[slot] == node;
+        if (isIndexed
+            && rects[r] == minX && rects[r + 1] == minY
+            && rects[r + 2] == maxX && rects[r + 3] == maxY) {
+            return false;
+        }
+
+        if (!isIndexed && nodes[slot] != null) {
+            // slot was reused without the previous node being removed
+            removeFromCells(slot);
+            nodes[slot] = null;
+            count--;
+        }
+
+        int x0 = cellCoord(minX), y0 = cellCoord(minY);
+        int x1 = cellCoord(maxX), y1 = cellCoord(maxY);
+        if (isIndexed) {
+            boolean sameCells = cellRanges[r] == x0 && cellRanges[r + 1] == y0
+                             && cellRanges[r + 2] == x1 && cellRanges[r + 3] == y1;
+            if (!sameCells) {
+                removeFromCells(slot);
+                addToCells(slot, x0, y0, x1, y1);
+            }
+        } else {
+            nodes[slot] = node;
+            count++;
+            addToCells(slot, x0, y0, x1, y1);
+        }
+
+        rects[r] = minX;
+        rects[r + 1] = minY;
+        rects[r + 2] = maxX;
+        rects[r + 3] = maxY;
+        return true;
+    }
+
+    public void remove(Node2 node) {
+        if (!contains(node)) {
+            return;
+        }
+        int slot = SlotMap.slot(node.handle);
+        removeFromCells(slot);
+        nodes[slot] = null;
+        count--;
+    }
+
+    public void clear() {
+        cells.clear();
+        Arrays.fill(nodes, null);
+        count = 0;
+    }
+
+    /**
+     * Append the nodes whose rectangles intersect the specified rectangle to {@code out}
+     * @return the number of nodes appended
+     */
+    public int query(float minX, float minY, float maxX, float maxY, List<Node2> out) {
+        int found = 0;
+        int stamp = nextQueryStamp();
+        int x0 = cellCoord(minX), y0 = cellCoord(minY);
+        int x1 = cellCoord(maxX), y1 = cellCoord(maxY);
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                var cell = cells.get(cellKey(cx, cy));
+                if (cell == null) continue;
+
+                for (int i = 0; i < cell.size; i++) {
+                    int slot = cell.slots[i];
+                    if (queryStamps[slot] == stamp) continue;
+                    queryStamps[slot] = stamp;
+
+                    if (overlaps(slot, minX, minY, maxX, maxY)) {
+                        out.add(nodes[slot]);
+                        found++;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return true if any node's rectangle intersects the specified rectangle
+     */
+    public boolean overlapsAny(float minX, float minY, float maxX, float maxY) {
+        int x0 = cellCoord(minX), y0 = cellCoord(minY);
+        int x1 = cellCoord(maxX), y1 = cellCoord(maxY);
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                var cell = cells.get(cellKey(cx, cy));
+                if (cell == null) continue;
+
+                for (int i = 0; i < cell.size; i++) {
+                    if (overlaps(cell.slots[i], minX, minY, maxX, maxY)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a node whose rectangle contains the point, or null
+     */
+    public Node2 nodeAt(float x, float y) {
+        var cell = cells.get(cellKey(cellCoord(x), cellCoord(y)));
+        if (cell == null) {
+            return null;
+        }
+        for (int i = cell.size - 1; i >= 0; i--) {
+            int slot = cell.slots[i];
+            if (overlaps(slot, x, y, x, y)) {
+                return nodes[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the node whose rectangle is closest to the point, within {@code maxDistance}, or null
+     */
+    public Node2 nearest(float x, float y, float maxDistance) {
+        if (count == 0) {
+            return null;
+        }
+
+        int cx = cellCoord(x), cy = cellCoord(y);
+        int maxRing = (int) Math.min(Math.ceil(maxDistance / cellSize) + 1, MAX_NEAREST_RINGS);
+        int stamp = nextQueryStamp();
+
+        Node2 best = null;
+        float bestDist2 = maxDistance * maxDistance;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                for (int gx = cx - ring; gx <= cx + ring; gx++) {
+                    // only visit the perimeter of the ring, inner cells were visited already
+                    boolean isPerimeter = gy == cy - ring || gy == cy + ring || gx == cx - ring || gx == cx + ring;
+                    if (!isPerimeter) continue;
+
+                    var cell = cells.get(cellKey(gx, gy));
+                    if (cell == null) continue;
+
+                    for (int i = 0; i < cell.size; i++) {
+                        int slot = cell.slots[i];
+                        if (queryStamps[slot] == stamp) continue;
+                        queryStamps[slot] = stamp;
+
+                        float dist2 = distance2(slot, x, y);
+                        if (dist2 <= bestDist2) {
+                            bestDist2 = dist2;
+                            best = nodes[slot];
+                        }
+                    }
+                }
+            }
+
+            // anything in the next ring is at least `ring * cellSize` away from the point
+            float ringDist = ring * cellSize;
+            if (best != null && bestDist2 <= ringDist * ringDist) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Find a position near (x, y) where a rectangle of the specified size doesn't overlap any node.
+     * Candidates are tried in rings of increasing distance around the preferred position.
+     *
+     * @param out set to the top-left corner of the free rectangle, if one was found
+     * @return true if a free position was found
+     */
+    public boolean findFreeSpace(float x, float y, float width, float height, float padding, ImVec2 out) {
+        float stepX = width + padding;
+        float stepY = height + padding;
+        for (int ring = 0; ring <= MAX_FREE_SPACE_RINGS; ring++) {
+            for (int dy = -ring; dy <= ring; dy++) {
+                for (int dx = -ring; dx <= ring; dx++) {
+                    boolean isPerimeter = Math.abs(dx) == ring || Math.abs(dy) == ring;
+                    if (!isPerimeter) continue;
+
+                    float minX = x + dx * stepX;
+                    float minY = y + dy * stepY;
+                    if (!overlapsAny(minX - padding, minY - padding, minX + width + padding, minY + height + padding)) {
+                        out.set(minX, minY);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean overlaps(int slot, float minX, float minY, float maxX, float maxY) {
+        int r = slot * 4;
+        return rects[r + 2] >= minX && rects[r] <= maxX
+            && rects[r + 3] >= minY && rects[r + 1] <= maxY;
+    }
+
+    private float distance2(int slot, float x, float y) {
+        int r = slot * 4;
+        float dx = Math.max(Math.max(rects[r] - x, 0f), x - rects[r + 2]);
+        float dy = Math.max(Math.max(rects[r + 1] - y, 0f), y - rects[r + 3]);
+        return dx * dx + dy * dy;
+    }
+
+    private int nextQueryStamp() {
+        if (++queryStamp == 0) {
+            // wrapped around, old stamps could collide with new ones
+            Arrays.fill(queryStamps, 0);
+            queryStamp = 1;
+        }
+        return queryStamp;
+    }
+
+    private void addToCells(int slot, int x0, int y0, int x1, int y1) {
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                long key = cellKey(cx, cy);
+                var cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Cell();
+                    cells.put(key, cell);
+                }
+                cell.add(slot);
+            }
+        }
+        int r = slot * 4;
+        cellRanges[r] = x0;
+        cellRanges[r + 1] = y0;
+        cellRanges[r + 2] = x1;
+        cellRanges[r + 3] = y1;
+    }
+
+    private void removeFromCells(int slot) {
+        int r = slot * 4;
+        for (int cy = cellRanges[r + 1]; cy <= cellRanges[r + 3]; cy++) {
+            for (int cx = cellRanges[r]; cx <= cellRanges[r + 2]; cx++) {
+                long key = cellKey(cx, cy);
+                var cell = cells.get(key);
+                if (cell == null) continue;
+
+                cell.remove(slot);
+                if (cell.size == 0) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int slots) {
+        if (slots <= nodes.length) {
+            return;
+        }
+        int capacity = Math.max(slots, nodes.length * 2);
+        nodes = Arrays.copyOf(nodes, capacity);
+        rects = Arrays.copyOf(rects, capacity * 4);
+        cellRanges = Arrays.copyOf(cellRanges, capacity * 4);
+        queryStamps = Arrays.copyOf(queryStamps, capacity);
+    }
+
+    private int cellCoord(float value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,97 @@
+package lando.systems.game.ui.nodeeditor;
+
+import imgui.ImGui;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays store for the section bounds of every node in a session,
+ * indexed by the slot of the node's {@link SlotMap} handle.
+ * <p>
+ * Each slot holds {@code (minX, minY, maxX, maxY)} for every {@link Node2.Section}, packed into one float array,
+ * so scanning node bounds for culling reads contiguous memory instead of chasing per-node objects.
+ * Values are in the coordinate space ImGui reports while rendering inside the node editor, ie. canvas space.
+ */
+public class SectionBoundsStore {
+
+    private static final Node2.Section[] SECTIONS = Node2.Section.values();
+    private static final int STRIDE = SECTIONS.length * 4;
+
+    /**
+     * Single slot store shared by every node that isn't part of a session, they all have slot 0.
+     * What's measured for a detached node is scratch, it's reset once the node is added to a session.
+     */
+    public static final SectionBoundsStore DETACHED = new SectionBoundsStore(1);
+
+    private float[] data;
+
+    public SectionBoundsStore() {
+        this(64);
+    }
+
+    public SectionBoundsStore(int initialSlots) {
+        this.data = new float[Math.max(1, initialSlots) * STRIDE];
+    }
+
+    public void ensureCapacity(int slots) {
+        if (slots * STRIDE <= data.length) {
+            return;
+        }
+        int capacity = Math.max(slots, (data.length / STRIDE) * 2);
+        data = Arrays.copyOf(data, capacity * STRIDE);
+    }
+
+    /**
+     * Reset all sections for the slot to empty, so a reused slot starts out unmeasured
+     */
+    public void reset(int slot) {
+        ensureCapacity(slot + 1);
+        int offset = slot * STRIDE;
+        Arrays.fill(data, offset, offset + STRIDE, 0f);
+    }
+
+    public void set(int slot, Node2.Section section, float minX, float minY, float maxX, float maxY) {
+        int i = index(slot, section);
+        data[i]     = minX;
+        data[i + 1] = minY;
+        data[i + 2] = maxX;
+        data[i + 3] = maxY;
+    }
+
+    /**
+     * Set the section bounds from the last submitted ImGui item
+     */
+    public void setFromItemRect(int slot, Node2.Section section) {
+        set(slot, section,
+            ImGui.getItemRectMinX(), ImGui.getItemRectMinY(),
+            ImGui.getItemRectMaxX(), ImGui.getItemRectMaxY());
+    }
+
+    public float minX(int slot, Node2.Section section) { return data[index(slot, section)]; }
+    public float minY(int slot, Node2.Section section) { return data[index(slot, section) + 1]; }
+    public float maxX(int slot, Node2.Section section) { return data[index(slot, section) + 2]; }
+    public float maxY(int slot, Node2.Section section) { return data[index(slot, section) + 3]; }
+
+    public float width(int slot, Node2.Section section) {
+        int i = index(slot, section);
+        return data[i + 2] - data[i];
+    }
+
+    public float height(int slot, Node2.Section section) {
+        int i = index(slot, section);
+        return data[i + 3] - data[i + 1];
+    }
+
+    /**
+     * @return false until the node in the slot has been laid out at least once
+     */
+    public boolean isMeasured(int slot) {
+        int i = index(slot, Node2.Section.NODE);
+        return data[i + 2] > data[i] && data[i + 3] > data[i + 1];
+    }
+
+    private static int index(int slot, Node2.Section section) {
+        return slot * STRIDE + section.ordinal() * 4;
+    }
+}
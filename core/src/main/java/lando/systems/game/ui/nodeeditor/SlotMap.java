@@ -0,0 +1,213 @@
+package lando.systems.game.ui.nodeeditor;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Generational slot map: O(1) insert, lookup and removal, with the live
+ * items packed into a dense array for iteration.
+ * <p>
+ * Inserting an item returns a 64-bit handle made of a slot index (low 32 bits)
+ * and the slot's generation (high 32 bits). Removing an item bumps the
+ * generation of its slot before the slot is reused, so handles to removed
+ * items are detected as stale instead of resolving to whatever replaced them.
+ * <p>
+ * Dense indices are only stable until the next removal, the last item is
+ * swapped into the hole. Slot indices are stable for the lifetime of an item
+ * and are reused from a free list, so they stay bounded by the peak live count.
+ */
+public class SlotMap<T> implements Iterable<T> {
+
+    /**
+     * Never returned by {@link #insert(Object)}, generations start at 1
+     */
+    public static final long NONE = 0L;
+
+    private static final int FREE_LIST_END = -1;
+
+    private Object[] dense;
+    private int[] denseToSlot;
+
+    // for live slots this is the dense index of the item,
+    // for free slots it's the next slot in the free list
+    private int[] slotToDense;
+    private int[] generations;
+
+    private int size;
+    private int slotCount;
+    private int freeHead;
+
+    public SlotMap() {
+        this(16);
+    }
+
+    public SlotMap(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.dense = new Object[capacity];
+        this.denseToSlot = new int[capacity];
+        this.slotToDense = new int[capacity];
+        this.generations = new int[capacity];
+        this.size = 0;
+        this.slotCount = 0;
+        this.freeHead = FREE_LIST_END;
+    }
+
+    public static int slot(long handle) {
+        return (int) handle;
+    }
+
+    public static int generation(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static long handle(int slot, int generation) {
+        return ((long) generation << 32) | (slot & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return a handle that resolves to the item until it is removed
+     */
+    public long insert(T item) {
+        int slot;
+        if (freeHead != FREE_LIST_END) {
+            slot = freeHead;
+            freeHead = slotToDense[slot];
+        } else {
+            if (slotCount == generations.length) {
+                int capacity = generations.length * 2;
+                slotToDense = Arrays.copyOf(slotToDense, capacity);
+                generations = Arrays.copyOf(generations, capacity);
+            }
+            slot = slotCount++;
+            generations[slot] = 1;
+        }
+
+        if (size == dense.length) {
+            int capacity = dense.length * 2;
+            dense = Arrays.copyOf(dense, capacity);
+            denseToSlot = Arrays.copyOf(denseToSlot, capacity);
+        }
+
+        int index = size++;
+        dense[index] = item;
+        denseToSlot[index] = slot;
+        slotToDense[slot] = index;
+        return handle(slot, generations[slot]);
+    }
+
+    /**
+     * @return true if the handle refers to a live item
+     */
+    public boolean contains(long handle) {
+        int slot = slot(handle);
+        // freed slots always have a newer generation than any handle given out for them
+        return slot >= 0 && slot < slotCount
+            && generations[slot] == generation(handle);
+    }
+
+    /**
+     * @return the item for the handle, or null if the handle is stale
+     */
+    @SuppressWarnings("unchecked")
+    public T resolve(long handle) {
+        if (!contains(handle)) {
+            return null;
+        }
+        return (T) dense[slotToDense[slot(handle)]];
+    }
+
+    /**
+     * @return the removed item, or null if the handle was stale
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(long handle) {
+        if (!contains(handle)) {
+            return null;
+        }
+
+        int slot = slot(handle);
+        int index = slotToDense[slot];
+        var item = (T) dense[index];
+
+        // swap the last item into the hole to keep the dense array packed
+        int last = --size;
+        if (index != last) {
+            int movedSlot = denseToSlot[last];
+            dense[index] = dense[last];
+            denseToSlot[index] = movedSlot;
+            slotToDense[movedSlot] = index;
+        }
+        dense[last] = null;
+
+        // invalidate outstanding handles and push the slot onto the free list
+        int generation = generations[slot] + 1;
+        generations[slot] = (generation == 0) ? 1 : generation;
+        slotToDense[slot] = freeHead;
+        freeHead = slot;
+        return item;
+    }
+
+    public void clear() {
+        while (size > 0) {
+            int slot = denseToSlot[size - 1];
+            remove(handle(slot, generations[slot]));
+        }
+    }
+
+    /**
+     * @param index dense index in [0, size)
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(STR."index \{index} out of bounds for size \{size}");
+        }
+        return (T) dense[index];
+    }
+
+    /**
+     * @param index dense index in [0, size)
+     * @return the slot index of the item at the dense index
+     */
+    public int slotAt(int index) {
+        return denseToSlot[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return one more than the highest slot index ever handed out,
+     *  useful for sizing side tables that are indexed by slot
+     */
+    public int slotCount() {
+        return slotCount;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return (T) dense[index++];
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package lando.systems.game.ui.nodeeditor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reference counted string deduplication for the strings a session holds on to,
+ * like node labels, pin labels and string property values.
+ * <p>
+ * {@link #acquire(String)} returns the pooled instance equal to a string and counts a reference to it,
+ * so every holder of an equal string shares one instance. {@link #release(String)} drops a reference,
+ * a string with no references left is removed from the pool so it can be collected.
+ * Not thread safe, use it from the render thread like the rest of the session.
+ */
+public class StringPool {
+
+    private static class Entry {
+        final String value;
+        // estimated heap size of one instance of the value, in bytes
+        final int size;
+        int refs;
+        // references that came in as a distinct instance and were replaced by the pooled one, at most refs - 1
+        int numDeduplicated;
+
+        Entry(String value) {
+            this.value = value;
+            this.size = sizeOf(value);
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long bytesSaved = 0;
+
+    /**
+     * @return the pooled instance equal to {@code value}, which is pooled itself if it's new. Null for null.
+     */
+    public String acquire(String value) {
+        if (value == null) {
+            return null;
+        }
+        var entry = entries.get(value);
+        if (entry == null) {
+            entry = new Entry(value);
+            entries.put(value, entry);
+        } else if (entry.value != value) {
+            entry.numDeduplicated++;
+            bytesSaved += entry.size;
+        }
+        entry.refs++;
+        return entry.value;
+    }
+
+    /**
+     * Drop a reference acquired through {@link #acquire(String)}, strings that aren't pooled are ignored
+     */
+    public void release(String value) {
+        if (value == null) {
+            return;
+        }
+        var entry = entries.get(value);
+        if (entry == null) {
+            return;
+        }
+        entry.refs--;
+        if (entry.refs <= 0) {
+            entries.remove(value);
+            bytesSaved -= (long) entry.numDeduplicated * entry.size;
+        } else if (entry.numDeduplicated > entry.refs - 1) {
+            // can't tell which holder let go, assume it was one of the deduplicated ones
+            entry.numDeduplicated--;
+            bytesSaved -= entry.size;
+        }
+    }
+
+    /**
+     * @return the number of references to the value, 0 if it isn't pooled
+     */
+    public int refs(String value) {
+        var entry = entries.get(value);
+        return (entry == null) ? 0 : entry.refs;
+    }
+
+    /**
+     * @return the number of distinct pooled strings
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated heap bytes taken by the duplicate instances that were replaced with pooled ones
+     */
+    public long bytesSaved() {
+        return bytesSaved;
+    }
+
+    public void clear() {
+        entries.clear();
+        bytesSaved = 0;
+    }
+
+    /**
+     * Estimated heap size of a string with compact strings and compressed oops:
+     * the String object plus its backing byte array, each rounded up to 8 bytes
+     */
+    private static int sizeOf(String value) {
+        boolean isLatin1 = true;
+        for (int i = 0; isLatin1 && i < value.length(); i++) {
+            isLatin1 = value.charAt(i) < 256;
+        }
+        int numBytes = isLatin1 ? value.length() : value.length() * 2;
+        int stringSize = 24;
+        int arraySize = (16 + numBytes + 7) & ~7;
+        return stringSize + arraySize;
+    }
+}
@@ -0,0 +1,161 @@
+package lando.systems.game.ui.nodeeditor;
+
+import com.github.tommyettinger.ds.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Sparse store of running per-object timers, keyed by global id, for short-lived visual effects.
+ * <p>
+ * Only running timers are stored, packed into primitive arrays per {@link Effect},
+ * and a timer is evicted as soon as it expires. The per-frame cost of {@link #update(float)}
+ * is proportional to what is currently animating rather than to every object ever touched.
+ */
+public class TimedEffects {
+
+    public enum Effect {
+        /** node was just interacted with, highlighted in the info pane */
+        TOUCH(1f);
+
+        public final float defaultDuration;
+
+        Effect(float defaultDuration) {
+            this.defaultDuration = defaultDuration;
+        }
+    }
+
+    private static final int NOT_FOUND = -1;
+    // values() copies the array on every call
+    private static final Effect[] EFFECTS = Effect.values();
+
+    /**
+     * Running timers for a single effect type, stored densely so
+     * expired timers can be swap-removed without leaving holes
+     */
+    private static class Timers {
+        final LongIntMap indexById = new LongIntMap();
+        long[] ids = new long[16];
+        float[] remaining = new float[16];
+        float[] durations = new float[16];
+        int count = 0;
+
+        int indexOf(long id) {
+            return indexById.getOrDefault(id, NOT_FOUND);
+        }
+
+        void start(long id, float duration) {
+            int index = indexOf(id);
+            if (index == NOT_FOUND) {
+                if (count == ids.length) {
+                    int capacity = ids.length * 2;
+                    ids = Arrays.copyOf(ids, capacity);
+                    remaining = Arrays.copyOf(remaining, capacity);
+                    durations = Arrays.copyOf(durations, capacity);
+                }
+                index = count++;
+                ids[index] = id;
+                indexById.put(id, index);
+            }
+            // restarting a running timer just resets it
+            remaining[index] = duration;
+            durations[index] = duration;
+        }
+
+        void removeAt(int index) {
+            indexById.remove(ids[index]);
+
+            int last = --count;
+            if (index != last) {
+                ids[index] = ids[last];
+                remaining[index] = remaining[last];
+                durations[index] = durations[last];
+                indexById.put(ids[index], index);
+            }
+        }
+
+        void update(float dt) {
+            // walk backwards so swap-removal doesn't skip anything
+            for (int i = count - 1; i >= 0; i--) {
+                remaining[i] -= dt;
+                if (remaining[i] <= 0f) {
+                    removeAt(i);
+                }
+            }
+        }
+    }
+
+    private final Timers[] timers;
+
+    public TimedEffects() {
+        this.timers = new Timers[EFFECTS.length];
+        for (var effect : EFFECTS) {
+            timers[effect.ordinal()] = new Timers();
+        }
+    }
+
+    public void start(Effect effect, long globalId) {
+        start(effect, globalId, effect.defaultDuration);
+    }
+
+    public void start(Effect effect, long globalId, float duration) {
+        if (duration <= 0f) {
+            return;
+        }
+        timers[effect.ordinal()].start(globalId, duration);
+    }
+
+    public void stop(Effect effect, long globalId) {
+        var effectTimers = timers[effect.ordinal()];
+        int index = effectTimers.indexOf(globalId);
+        if (index != NOT_FOUND) {
+            effectTimers.removeAt(index);
+        }
+    }
+
+    /**
+     * Stop all effects for the specified object, eg. when it's removed from the session
+     */
+    public void stopAll(long globalId) {
+        for (var effect : EFFECTS) {
+            stop(effect, globalId);
+        }
+    }
+
+    public boolean isActive(Effect effect, long globalId) {
+        return timers[effect.ordinal()].indexOf(globalId) != NOT_FOUND;
+    }
+
+    /**
+     * @return progress through the effect as a percent: 0..1, or 0 if the effect isn't running
+     */
+    public float progress(Effect effect, long globalId) {
+        var effectTimers = timers[effect.ordinal()];
+        int index = effectTimers.indexOf(globalId);
+        if (index == NOT_FOUND) {
+            return 0f;
+        }
+        float duration = effectTimers.durations[index];
+        return (duration - effectTimers.remaining[index]) / duration;
+    }
+
+    /**
+     * @return the number of running timers for the effect
+     */
+    public int activeCount(Effect effect) {
+        return timers[effect.ordinal()].count;
+    }
+
+    /**
+     * @return the global id of a running timer for the effect
+     * @param index in [0, activeCount(effect))
+     */
+    public long activeId(Effect effect, int index) {
+        return timers[effect.ordinal()].ids[index];
+    }
+
+    public void update(float dt) {
+        for (var effectTimers : timers) {
+            effectTimers.update(dt);
+        }
+    }
+}
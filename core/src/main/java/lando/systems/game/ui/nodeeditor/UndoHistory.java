@@ -0,0 +1,513 @@
+package lando.systems.game.ui.nodeeditor;
+
+import com.badlogic.gdx.utils.TimeUtils;
+import imgui.extension.nodeditor.NodeEditor;
+import lando.systems.game.ui.nodeeditor.objects.Link2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+import lando.systems.game.ui.nodeeditor.objects.Pin2;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Undo and redo for an {@link EditorSession}, recorded from its session listener callbacks
+ * as invertible commands that keep the removed objects themselves, so undoing re-adds them as they were.
+ * <p>
+ * Everything that changes between two calls to {@link #update()} is one undo step, so a frame that
+ * deletes ten thousand nodes is undone by one call that re-adds them all. Consecutive edits of the same
+ * property, and consecutive moves of the same node, are merged into one step if they happen within
+ * {@link #COALESCE_MILLIS} of each other. The oldest steps are dropped once the estimated size of the
+ * history goes over {@link #getMaxBytes()}. Clearing the session clears the history.
+ */
+public class UndoHistory implements EditorSession.SessionListener {
+
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    public static final long COALESCE_MILLIS = 1000;
+
+    private final EditorSession session;
+    private final Deque<Command> undoStack = new ArrayDeque<>();
+    private final Deque<Command> redoStack = new ArrayDeque<>();
+
+    // commands recorded since the last update, they become one undo step
+    private final List<Command> pending = new ArrayList<>();
+
+    private long maxBytes;
+    private long numBytes = 0;
+    private long lastPushMillis = 0;
+    // set while undoing or redoing, so the session changes it makes aren't recorded again
+    private boolean isApplying = false;
+
+    public UndoHistory(EditorSession session) {
+        this(session, DEFAULT_MAX_BYTES);
+    }
+
+    public UndoHistory(EditorSession session, long maxBytes) {
+        this.session = session;
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    /**
+     * @return estimated heap bytes retained by the undo and redo steps
+     */
+    public long getNumBytes() {
+        return numBytes;
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty() || !pending.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty() && pending.isEmpty();
+    }
+
+    public int numUndoSteps() {
+        return undoStack.size() + (pending.isEmpty() ? 0 : 1);
+    }
+
+    public int numRedoSteps() {
+        return redoStack.size();
+    }
+
+    /**
+     * Close the current undo step, call once per frame
+     */
+    public void update() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        var command = (pending.size() == 1) ? pending.getFirst() : new Batch(new ArrayList<>(pending));
+        pending.clear();
+        push(command);
+    }
+
+    public void undo() {
+        update();
+        var command = undoStack.pollLast();
+        if (command == null) {
+            return;
+        }
+        apply(command, true);
+        redoStack.addLast(command);
+        // a step that was undone can't be extended by the next edit
+        lastPushMillis = 0;
+    }
+
+    public void redo() {
+        update();
+        var command = redoStack.pollLast();
+        if (command == null) {
+            return;
+        }
+        apply(command, false);
+        undoStack.addLast(command);
+        lastPushMillis = 0;
+    }
+
+    public void clear() {
+        pending.clear();
+        undoStack.clear();
+        redoStack.clear();
+        numBytes = 0;
+        lastPushMillis = 0;
+    }
+
+    private void apply(Command command, boolean isUndo) {
+        isApplying = true;
+        try {
+            if (isUndo) {
+                command.undo(session);
+            } else {
+                command.redo(session);
+            }
+        } finally {
+            isApplying = false;
+        }
+    }
+
+    private void record(Command command) {
+        if (isApplying) {
+            return;
+        }
+        pending.add(command);
+    }
+
+    private void push(Command command) {
+        for (var redo : redoStack) {
+            numBytes -= redo.bytes();
+        }
+        redoStack.clear();
+
+        long now = TimeUtils.millis();
+        var previous = undoStack.peekLast();
+        boolean isRecent = now - lastPushMillis <= COALESCE_MILLIS;
+        lastPushMillis = now;
+        if (isRecent && previous != null) {
+            long previousBytes = previous.bytes();
+            if (previous.merge(command)) {
+                numBytes += previous.bytes() - previousBytes;
+                trim();
+                return;
+            }
+        }
+
+        undoStack.addLast(command);
+        numBytes += command.bytes();
+        trim();
+    }
+
+    private void trim() {
+        // always keep the latest step, even if it's bigger than the cap on its own
+        while (numBytes > maxBytes && undoStack.size() > 1) {
+            numBytes -= undoStack.pollFirst().bytes();
+        }
+    }
+
+    // Session listener -------------------------------------------------------
+
+    @Override
+    public void nodeAdded(Node2 node) {
+        record(new NodeAdded(node));
+    }
+
+    @Override
+    public void nodeRemoved(Node2 node) {
+        if (isApplying) {
+            return;
+        }
+        // called while the node is still attached, so its links and position can be captured
+        var links = new ArrayList<Link2>();
+        links.addAll(session.getLinksInto(node));
+        links.addAll(session.getLinksOutOf(node));
+        float x = NodeEditor.getNodePositionX(node.globalId);
+        float y = NodeEditor.getNodePositionY(node.globalId);
+        record(new NodeRemoved(node, x, y, links));
+    }
+
+    @Override
+    public void pinAdded(Pin2 pin) {
+        record(new PinChanged(pin, true));
+    }
+
+    @Override
+    public void pinRemoved(Pin2 pin) {
+        record(new PinChanged(pin, false));
+    }
+
+    @Override
+    public void linkAdded(Link2 link) {
+        record(new LinkChanged(link, true));
+    }
+
+    @Override
+    public void linkRemoved(Link2 link) {
+        record(new LinkChanged(link, false));
+    }
+
+    @Override
+    public void propertyChanged(Node2 node, String key, String oldValue, String value) {
+        record(new PropertyChanged(node, key, oldValue, value));
+    }
+
+    @Override
+    public void nodeMoved(Node2 node, float fromX, float fromY, float x, float y) {
+        // the first placement of a new node is part of adding it
+        if (Float.isNaN(fromX)) {
+            return;
+        }
+        record(new NodeMoved(node, fromX, fromY, x, y));
+    }
+
+    @Override
+    public void sessionCleared() {
+        if (!isApplying) {
+            clear();
+        }
+    }
+
+    // Commands ---------------------------------------------------------------
+
+    /**
+     * Estimated retained sizes, close enough to bound the history without walking object graphs
+     */
+    private static class Bytes {
+        static final int COMMAND = 32;
+        static final int NODE = 512;
+        static final int PIN = 96;
+        static final int LINK = 64;
+
+        static int of(String value) {
+            return (value == null) ? 0 : 40 + value.length();
+        }
+    }
+
+    private interface Command {
+        void undo(EditorSession session);
+        void redo(EditorSession session);
+        long bytes();
+
+        /**
+         * Fold the next command into this one, if they change the same thing
+         * @return true if it was merged
+         */
+        default boolean merge(Command next) {
+            return false;
+        }
+    }
+
+    private static class Batch implements Command {
+        final List<Command> commands;
+        final long bytes;
+
+        Batch(List<Command> commands) {
+            this.commands = commands;
+            long bytes = Bytes.COMMAND;
+            for (var command : commands) {
+                bytes += command.bytes();
+            }
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void undo(EditorSession session) {
+            for (int i = commands.size() - 1; i >= 0; i--) {
+                commands.get(i).undo(session);
+            }
+        }
+
+        @Override
+        public void redo(EditorSession session) {
+            for (var command : commands) {
+                command.redo(session);
+            }
+        }
+
+        @Override
+        public long bytes() {
+            return bytes;
+        }
+    }
+
+    private static class NodeAdded implements Command {
+        final Node2 node;
+        // where the node was when it was undone, so redo puts it back there
+        float x = Float.NaN;
+        float y = Float.NaN;
+
+        NodeAdded(Node2 node) {
+            this.node = node;
+        }
+
+        @Override
+        public void undo(EditorSession session) {
+            x = NodeEditor.getNodePositionX(node.globalId);
+            y = NodeEditor.getNodePositionY(node.globalId);
+            session.removeNode(node);
+        }
+
+        @Override
+        public void redo(EditorSession session) {
+            session.addNode(node);
+            if (!Float.isNaN(x)) {
+                session.moveNode(node, x, y);
+            }
+        }
+
+        @Override
+        public long bytes() {
+            return Bytes.COMMAND + Bytes.NODE;
+        }
+    }
+
+    private static class NodeRemoved implements Command {
+        final Node2 node;
+        final float x;
+        final float y;
+        final List<Link2> links;
+
+        NodeRemoved(Node2 node, float x, float y, List<Link2> links) {
+            this.node = node;
+            this.x = x;
+            this.y = y;
+            this.links = links;
+        }
+
+        @Override
+        public void undo(EditorSession session) {
+            session.addNode(node);
+            session.moveNode(node, x, y);
+            for (var link : links) {
+                session.addLink(link);
+            }
+        }
+
+        @Override
+        public void redo(EditorSession session) {
+            session.removeNode(node);
+        }
+
+        @Override
+        public long bytes() {
+            return Bytes.COMMAND + Bytes.NODE
+                + (long) (node.inputs.size() + node.outputs.size()) * Bytes.PIN
+                + (long) links.size() * Bytes.LINK;
+        }
+    }
+
+    private static class PinChanged implements Command {
+        final Pin2 pin;
+        final boolean isAdded;
+
+        PinChanged(Pin2 pin, boolean isAdded) {
+            this.pin = pin;
+            this.isAdded = isAdded;
+        }
+
+        @Override
+        public void undo(EditorSession session) {
+            if (isAdded) {
+                session.removePin(pin);
+            } else {
+                session.addPin(pin);
+            }
+        }
+
+        @Override
+        public void redo(EditorSession session) {
+            if (isAdded) {
+                session.addPin(pin);
+            } else {
+                session.removePin(pin);
+            }
+        }
+
+        @Override
+        public long bytes() {
+            return Bytes.COMMAND + Bytes.PIN;
+        }
+    }
+
+    private static class LinkChanged implements Command {
+        final Link2 link;
+        final boolean isAdded;
+
+        LinkChanged(Link2 link, boolean isAdded) {
+            this.link = link;
+            this.isAdded = isAdded;
+        }
+
+        @Override
+        public void undo(EditorSession session) {
+            if (isAdded) {
+                session.removeLink(link);
+            } else {
+                session.addLink(link);
+            }
+        }
+
+        @Override
+        public void redo(EditorSession session) {
+            if (isAdded) {
+                session.addLink(link);
+            } else {
+                session.removeLink(link);
+            }
+        }
+
+        @Override
+        public long bytes() {
+            return Bytes.COMMAND + Bytes.LINK;
+        }
+    }
+
+    private static class PropertyChanged implements Command {
+        final Node2 node;
+        final String key;
+        final String oldValue;
+        String value;
+
+        PropertyChanged(Node2 node, String key, String oldValue, String value) {
+            this.node = node;
+            this.key = key;
+            this.oldValue = oldValue;
+            this.value = value;
+        }
+
+        @Override
+        public void undo(EditorSession session) {
+            session.setProperty(node, key, oldValue);
+        }
+
+        @Override
+        public void redo(EditorSession session) {
+            session.setProperty(node, key, value);
+        }
+
+        @Override
+        public boolean merge(Command next) {
+            if (next instanceof PropertyChanged edit && edit.node == node && edit.key.equals(key)) {
+                value = edit.value;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long bytes() {
+            // values are pooled while they're in the session, so this overestimates
+            return Bytes.COMMAND + Bytes.of(oldValue) + Bytes.of(value);
+        }
+    }
+
+    private static class NodeMoved implements Command {
+        final Node2 node;
+        final float fromX;
+        final float fromY;
+        float x;
+        float y;
+
+        NodeMoved(Node2 node, float fromX, float fromY, float x, float y) {
+            this.node = node;
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void undo(EditorSession session) {
+            session.moveNode(node, fromX, fromY);
+        }
+
+        @Override
+        public void redo(EditorSession session) {
+            session.moveNode(node, x, y);
+        }
+
+        @Override
+        public boolean merge(Command next) {
+            if (next instanceof NodeMoved move && move.node == node) {
+                x = move.x;
+                y = move.y;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public long bytes() {
+            return Bytes.COMMAND;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package lando.systems.game.ui.nodeeditor.exec;
+
+import lando.systems.game.ui.nodeeditor.objects.Link2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+
+import java.util.Arrays;
+
+/**
+ * Flat, topologically ordered program compiled from the nodes of an {@link lando.systems.game.ui.nodeeditor.EditorSession}
+ * by a {@link PlanCompiler}.
+ * <p>
+ * Each node that runs is one instruction: an opcode and two int operands, with pin connections already
+ * resolved to register indices and property values copied into a constant table. Running the plan is a
+ * single pass over those arrays, it never reads node properties or looks anything up by id or key.
+ * The node of each instruction and the links that lead into it are resolved when compiling and kept next to it,
+ * so callers can visualize the flow as it runs.
+ */
+public class ExecutionPlan {
+
+    /** operand value for an input pin that isn't connected */
+    public static final int NO_REGISTER = -1;
+
+    /**
+     * Receives the effects of running a plan
+     */
+    public interface Output {
+        /**
+         * A display node ran
+         */
+        void display(Node2 node, String text);
+
+        /**
+         * Execution or data passed through a link, reported before the instruction it leads into runs
+         */
+        default void linkTraversed(Link2 link) {}
+    }
+
+    static final class Op {
+        static final int NOP = 0;
+        /** registers[b] = constants[a] */
+        static final int TEXT = 1;
+        /** display registers[a], or an empty string if a is {@link #NO_REGISTER} */
+        static final int DISPLAY = 2;
+    }
+
+    // instructions
+    int numInstructions = 0;
+    int[] ops = new int[16];
+    int[] operandA = new int[16];
+    int[] operandB = new int[16];
+    Node2[] nodes = new Node2[16];
+
+    // links leading into instruction i are links[linkStart[i] .. linkStart[i + 1])
+    int[] linkStart = new int[17];
+    Link2[] links = new Link2[16];
+
+    String[] constants = new String[16];
+    String[] registers = new String[16];
+    int numRegisters = 0;
+
+    // nodes that are reachable but sit on a cycle, so they have no place in the order
+    int numSkipped = 0;
+
+    public int numInstructions() {
+        return numInstructions;
+    }
+
+    public int numRegisters() {
+        return numRegisters;
+    }
+
+    public int numSkipped() {
+        return numSkipped;
+    }
+
+    public boolean isEmpty() {
+        return numInstructions == 0;
+    }
+
+    /**
+     * Execute every instruction in order
+     */
+    public void run(Output output) {
+        Arrays.fill(registers, 0, numRegisters, null);
+        for (int i = 0; i < numInstructions; i++) {
+            for (int l = linkStart[i]; l < linkStart[i + 1]; l++) {
+                output.linkTraversed(links[l]);
+            }
+            switch (ops[i]) {
+                case Op.TEXT -> registers[operandB[i]] = constants[operandA[i]];
+                case Op.DISPLAY -> {
+                    var text = (operandA[i] == NO_REGISTER) ? null : registers[operandA[i]];
+                    output.display(nodes[i], (text == null) ? "" : text);
+                }
+                default -> {}
+            }
+        }
+    }
+
+    /**
+     * Drop all instructions, keeping the buffers, and make room for at least the specified counts
+     */
+    void reset(int numInstructions, int numLinks, int numRegisters) {
+        if (ops.length < numInstructions) {
+            int capacity = Math.max(numInstructions, ops.length * 2);
+            ops = new int[capacity];
+            operandA = new int[capacity];
+            operandB = new int[capacity];
+            nodes = new Node2[capacity];
+            linkStart = new int[capacity + 1];
+            constants = new String[capacity];
+        }
+        if (links.length < numLinks) {
+            links = new Link2[Math.max(numLinks, links.length * 2)];
+        }
+        if (registers.length < numRegisters) {
+            registers = new String[Math.max(numRegisters, registers.length * 2)];
+        }
+        // constants, nodes and links of the previous plan would otherwise stay reachable
+        Arrays.fill(constants, null);
+        Arrays.fill(nodes, null);
+        Arrays.fill(links, null);
+        this.numInstructions = 0;
+        this.numRegisters = numRegisters;
+        this.numSkipped = 0;
+        linkStart[0] = 0;
+    }
+}
@@ -0,0 +1,325 @@
+package lando.systems.game.ui.nodeeditor.exec;
+
+import com.github.tommyettinger.ds.LongIntMap;
+import com.github.tommyettinger.ds.LongSet;
+import lando.systems.game.ui.nodeeditor.EditorSession;
+import lando.systems.game.ui.nodeeditor.NodeFactory;
+import lando.systems.game.ui.nodeeditor.objects.Link2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+import lando.systems.game.ui.nodeeditor.objects.Pin2;
+import lando.systems.game.ui.nodeeditor.objects.PinType;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Keeps an {@link ExecutionPlan} in sync with a session.
+ * <p>
+ * Execution starts at the nodes that have flow pins but no incoming flow link, and follows flow links
+ * from there. Nodes that feed data into a node that runs are pulled in too, and everything is ordered so
+ * each node runs after the nodes it has links from, whatever the pin type.
+ * <p>
+ * The compiler listens to the session. A compile is a full rebuild, into the same buffers, done lazily the next time
+ * {@link #plan()} is called after the plan went stale, so a burst of edits costs one compile. Only structural changes
+ * that can reach the plan make it stale: ones that touch a node the last compile included, or a flow pin or link
+ * that can turn a node into an entry point. Everything else, like adding and wiring up nodes off to the side,
+ * leaves the plan as it is. Property edits that a compiled instruction depends on are patched into the plan's
+ * constants without recompiling, and moves are ignored.
+ */
+public class PlanCompiler implements EditorSession.SessionListener {
+
+    private final EditorSession session;
+    private final ExecutionPlan plan = new ExecutionPlan();
+    private boolean isStale = true;
+
+    // compile scratch, indexed by the node's dense index in the session's node slot map
+    private final LongIntMap indexByNode = new LongIntMap();
+    private final LongIntMap registerByPin = new LongIntMap();
+    // instruction of each node that reads a property, for patching
+    private final LongIntMap instructionByNode = new LongIntMap();
+    private final BitSet included = new BitSet();
+    // global ids of the nodes the last compile included, whether or not they made it into the order
+    private final LongSet planned = new LongSet();
+    private int[] queue = new int[16];
+    private int[] order = new int[16];
+    private int[] inDegree = new int[16];
+
+    public PlanCompiler(EditorSession session) {
+        this.session = session;
+    }
+
+    /**
+     * @return the plan for the session as it is now, compiled first if the graph changed
+     */
+    public ExecutionPlan plan() {
+        if (isStale) {
+            compile();
+            isStale = false;
+        }
+        return plan;
+    }
+
+    public boolean isStale() {
+        return isStale;
+    }
+
+    // Session listener -------------------------------------------------------
+
+    @Override
+    public void nodeAdded(Node2 node) {
+        // a new node is only linked once it's in, so it can only join the plan as an entry point
+        isStale |= isEntry(node);
+    }
+
+    @Override
+    public void nodeRemoved(Node2 node) {
+        // reported while the node's links are still there, flow links out of it may leave an entry point behind
+        if (isStale || planned.contains(node.globalId)) {
+            isStale = true;
+            return;
+        }
+        for (var link : session.getLinksOutOf(node)) {
+            if (link.src.type == PinType.FLOW) {
+                isStale = true;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void pinAdded(Pin2 pin) {
+        isStale |= pin.type == PinType.FLOW || planned.contains(pin.node.globalId);
+    }
+
+    @Override
+    public void pinRemoved(Pin2 pin) {
+        isStale |= pin.type == PinType.FLOW || planned.contains(pin.node.globalId);
+    }
+
+    @Override
+    public void linkAdded(Link2 link) {
+        // a link between two nodes outside the plan doesn't pull either of them in
+        isStale |= planned.contains(link.src.node.globalId) || planned.contains(link.dst.node.globalId);
+    }
+
+    @Override
+    public void linkRemoved(Link2 link) {
+        // removing a flow link can turn its destination into an entry point
+        isStale |= link.dst.type == PinType.FLOW
+            || planned.contains(link.src.node.globalId) || planned.contains(link.dst.node.globalId);
+    }
+
+    @Override
+    public void sessionCleared() {
+        isStale = true;
+    }
+
+    @Override
+    public void propertyChanged(Node2 node, String key, String oldValue, String value) {
+        if (isStale || !key.equals(NodeFactory.TEXT_PROPERTY)) {
+            return;
+        }
+        int instruction = instructionByNode.getOrDefault(node.globalId, -1);
+        if (instruction != -1 && plan.ops[instruction] == ExecutionPlan.Op.TEXT) {
+            plan.constants[plan.operandA[instruction]] = value;
+        }
+    }
+
+    // Compilation ------------------------------------------------------------
+
+    private void compile() {
+        var nodes = session.nodes;
+        int numNodes = nodes.size();
+        if (queue.length < numNodes) {
+            int capacity = Math.max(numNodes, queue.length * 2);
+            queue = new int[capacity];
+            order = new int[capacity];
+            inDegree = new int[capacity];
+        }
+        indexByNode.clear();
+        registerByPin.clear();
+        instructionByNode.clear();
+        included.clear();
+        for (int i = 0; i < numNodes; i++) {
+            indexByNode.put(nodes.get(i).globalId, i);
+        }
+
+        // entry points, then everything reachable from them through flow links
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < numNodes; i++) {
+            if (isEntry(nodes.get(i))) {
+                included.set(i);
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            var node = nodes.get(queue[head++]);
+            for (var link : session.getLinksOutOf(node)) {
+                if (link.src.type == PinType.FLOW) {
+                    tail = include(link.dst.node, tail);
+                }
+            }
+        }
+
+        // then the nodes that provide data to them, without following their own flow links
+        head = 0;
+        while (head < tail) {
+            var node = nodes.get(queue[head++]);
+            for (var link : session.getLinksInto(node)) {
+                if (link.dst.type != PinType.FLOW) {
+                    tail = include(link.src.node, tail);
+                }
+            }
+        }
+        int numIncluded = tail;
+        planned.clear();
+        for (int i = 0; i < numIncluded; i++) {
+            planned.add(nodes.get(queue[i]).globalId);
+        }
+
+        // topological order over every link between included nodes, in slot map order where there's a choice
+        int numLinks = 0;
+        Arrays.fill(inDegree, 0, numNodes, 0);
+        for (int i = included.nextSetBit(0); i >= 0; i = included.nextSetBit(i + 1)) {
+            for (var link : session.getLinksInto(nodes.get(i))) {
+                if (isIncluded(link.src.node)) {
+                    inDegree[i]++;
+                    numLinks++;
+                }
+            }
+        }
+        head = 0;
+        tail = 0;
+        for (int i = included.nextSetBit(0); i >= 0; i = included.nextSetBit(i + 1)) {
+            if (inDegree[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            var node = nodes.get(order[head++]);
+            for (var link : session.getLinksOutOf(node)) {
+                int dst = indexByNode.getOrDefault(link.dst.node.globalId, -1);
+                if (dst != -1 && included.get(dst) && --inDegree[dst] == 0) {
+                    order[tail++] = dst;
+                }
+            }
+        }
+        int numOrdered = tail;
+
+        // registers for every data output of a node that runs
+        int numRegisters = 0;
+        for (int i = 0; i < numOrdered; i++) {
+            for (var pin : nodes.get(order[i]).outputs) {
+                if (pin.type != PinType.FLOW && session.pins.contains(pin.handle)) {
+                    registerByPin.put(pin.globalId, numRegisters++);
+                }
+            }
+        }
+
+        plan.reset(numOrdered, numLinks, numRegisters);
+        plan.numSkipped = numIncluded - numOrdered;
+        for (int i = 0; i < numOrdered; i++) {
+            emit(nodes.get(order[i]));
+        }
+    }
+
+    private void emit(Node2 node) {
+        int instruction = plan.numInstructions++;
+        plan.nodes[instruction] = node;
+        plan.operandA[instruction] = ExecutionPlan.NO_REGISTER;
+        plan.operandB[instruction] = ExecutionPlan.NO_REGISTER;
+
+        switch (node.type) {
+            case NodeFactory.TEXT -> {
+                int output = firstRegister(node);
+                if (output == ExecutionPlan.NO_REGISTER) {
+                    plan.ops[instruction] = ExecutionPlan.Op.NOP;
+                } else {
+                    plan.ops[instruction] = ExecutionPlan.Op.TEXT;
+                    plan.operandA[instruction] = instruction;
+                    plan.operandB[instruction] = output;
+                    plan.constants[instruction] = node.props.strings.get(NodeFactory.TEXT_PROPERTY);
+                    instructionByNode.put(node.globalId, instruction);
+                }
+            }
+            case NodeFactory.DISPLAY_TEXT -> {
+                plan.ops[instruction] = ExecutionPlan.Op.DISPLAY;
+                plan.operandA[instruction] = sourceRegister(node, PinType.STRING);
+            }
+            default -> plan.ops[instruction] = ExecutionPlan.Op.NOP;
+        }
+
+        int l = plan.linkStart[instruction];
+        for (var link : session.getLinksInto(node)) {
+            if (isIncluded(link.src.node)) {
+                plan.links[l++] = link;
+            }
+        }
+        plan.linkStart[instruction + 1] = l;
+    }
+
+    /**
+     * @return the register of the node's first data output, or {@link ExecutionPlan#NO_REGISTER}
+     */
+    private int firstRegister(Node2 node) {
+        for (var pin : node.outputs) {
+            int register = registerByPin.getOrDefault(pin.globalId, ExecutionPlan.NO_REGISTER);
+            if (register != ExecutionPlan.NO_REGISTER) {
+                return register;
+            }
+        }
+        return ExecutionPlan.NO_REGISTER;
+    }
+
+    /**
+     * @return the register feeding the node's first linked input of the type, or {@link ExecutionPlan#NO_REGISTER}
+     */
+    private int sourceRegister(Node2 node, PinType type) {
+        for (var pin : node.inputs) {
+            if (pin.type != type || !session.pins.contains(pin.handle)) continue;
+            for (var link : session.getLinks(pin)) {
+                int register = registerByPin.getOrDefault(link.src.globalId, ExecutionPlan.NO_REGISTER);
+                if (register != ExecutionPlan.NO_REGISTER) {
+                    return register;
+                }
+            }
+        }
+        return ExecutionPlan.NO_REGISTER;
+    }
+
+    /**
+     * Nodes with flow pins and no incoming flow link start execution
+     */
+    private boolean isEntry(Node2 node) {
+        boolean hasFlowPin = false;
+        for (var pin : node.inputs) {
+            if (pin.type != PinType.FLOW || !session.pins.contains(pin.handle)) continue;
+            hasFlowPin = true;
+            if (session.isLinked(pin)) {
+                return false;
+            }
+        }
+        for (var pin : node.outputs) {
+            if (pin.type == PinType.FLOW && session.pins.contains(pin.handle)) {
+                hasFlowPin = true;
+            }
+        }
+        return hasFlowPin;
+    }
+
+    private boolean isIncluded(Node2 node) {
+        int index = indexByNode.getOrDefault(node.globalId, -1);
+        return index != -1 && included.get(index);
+    }
+
+    private int include(Node2 node, int tail) {
+        int index = indexByNode.getOrDefault(node.globalId, -1);
+        if (index == -1 || included.get(index)) {
+            return tail;
+        }
+        included.set(index);
+        queue[tail] = index;
+        return tail + 1;
+    }
+}
@@ -0,0 +1,342 @@
+package lando.systems.game.ui.nodeeditor.io;
+
+import lando.systems.game.ui.BackgroundTask;
+import lando.systems.game.ui.nodeeditor.objects.PinType;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary file format for {@link BlueprintDocument}s, little endian throughout.
+ * <pre>
+ * header   int magic 'BPRT', short version, short flags (reserved, 0)
+ * strings  int count, then per string: int byte length, utf-8 bytes
+ * nodes    int count, then per node:
+ *            long id, int type, int label, int color, float x, float y
+ *            int count + (int key, int value) string properties
+ *            int count + (int key, int value) int properties
+ *            int count + (int key, float value) float properties
+ *            int count + (int key, byte value) bool properties
+ *            short inputs + (int label, byte type) per pin
+ *            short outputs + (int label, byte type) per pin
+ * links    int count, then per link: int src node, short src pin, int dst node, short dst pin
+ * </pre>
+ * All strings are indices into the string table, {@link #NO_STRING} for null.
+ * <p>
+ * Files are read through a memory-mapped channel. Reading into a {@link BlueprintSink} decodes one record at a time,
+ * so apart from the string table nothing but the sink's own state is held on the heap. Reading a whole
+ * {@link BlueprintDocument} keeps every record, which is what a load that parses off the render thread needs.
+ */
+public class BinaryBlueprintFormat {
+
+    public static final String EXTENSION = "blueprint";
+
+    public static final int MAGIC = ('B' << 24) | ('P' << 16) | ('R' << 8) | 'T';
+    public static final short VERSION = 1;
+    public static final int NO_STRING = -1;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final PinType[] PIN_TYPES = PinType.values();
+
+    // Writing ----------------------------------------------------------------
+
+    public static void write(BlueprintDocument document, Path path) throws IOException {
+        write(document, path, null);
+    }
+
+    /**
+     * @param task reports progress per node and can cancel the write, or null
+     */
+    public static void write(BlueprintDocument document, Path path, BackgroundTask task) throws IOException {
+        var strings = new StringTable();
+        for (var node : document.nodes) {
+            strings.add(node.type);
+            strings.add(node.label);
+            node.props.strings.forEach((key, value) -> { strings.add(key); strings.add(value); });
+            node.props.ints.keySet().forEach(strings::add);
+            node.props.floats.keySet().forEach(strings::add);
+            node.props.bools.keySet().forEach(strings::add);
+            node.inputs.forEach(pin -> strings.add(pin.label));
+            node.outputs.forEach(pin -> strings.add(pin.label));
+        }
+
+        try (var channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             var out = new ChannelOutput(channel)) {
+            out.ensure(8).putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+
+            out.ensure(4).putInt(strings.values.size());
+            for (var string : strings.values) {
+                out.putBytes(string.getBytes(StandardCharsets.UTF_8));
+            }
+
+            int numNodes = document.nodes.size();
+            out.ensure(4).putInt(numNodes);
+            for (int n = 0; n < numNodes; n++) {
+                var node = document.nodes.get(n);
+                if (task != null) {
+                    task.progress(n, numNodes);
+                }
+                out.ensure(8 + 4 * 5)
+                    .putLong(node.id)
+                    .putInt(strings.indexOf(node.type))
+                    .putInt(strings.indexOf(node.label))
+                    .putInt(node.color)
+                    .putFloat(node.x)
+                    .putFloat(node.y);
+
+                var props = node.props;
+                out.ensure(4).putInt(props.strings.size());
+                for (var entry : props.strings.entrySet()) {
+                    out.ensure(8).putInt(strings.indexOf(entry.getKey())).putInt(strings.indexOf(entry.getValue()));
+                }
+                out.ensure(4).putInt(props.ints.size());
+                for (var entry : props.ints.entrySet()) {
+                    out.ensure(8).putInt(strings.indexOf(entry.getKey())).putInt(entry.getValue());
+                }
+                out.ensure(4).putInt(props.floats.size());
+                for (var entry : props.floats.entrySet()) {
+                    out.ensure(8).putInt(strings.indexOf(entry.getKey())).putFloat(entry.getValue());
+                }
+                out.ensure(4).putInt(props.bools.size());
+                for (var entry : props.bools.entrySet()) {
+                    out.ensure(5).putInt(strings.indexOf(entry.getKey())).put((byte) (entry.getValue() ? 1 : 0));
+                }
+
+                writePins(out, strings, node.inputs);
+                writePins(out, strings, node.outputs);
+            }
+
+            out.ensure(4).putInt(document.links.size());
+            for (var link : document.links) {
+                out.ensure(12)
+                    .putInt(link.srcNode).putShort((short) link.srcPin)
+                    .putInt(link.dstNode).putShort((short) link.dstPin);
+            }
+        }
+    }
+
+    private static void writePins(ChannelOutput out, StringTable strings, List<BlueprintDocument.PinRecord> pins) throws IOException {
+        out.ensure(2).putShort((short) pins.size());
+        for (var pin : pins) {
+            out.ensure(5).putInt(strings.indexOf(pin.label)).put((byte) pin.type.ordinal());
+        }
+    }
+
+    // Reading ----------------------------------------------------------------
+
+    public static BlueprintDocument read(Path path) throws IOException {
+        return read(path, null);
+    }
+
+    /**
+     * @param task reports progress per node and can cancel the read, or null
+     */
+    public static BlueprintDocument read(Path path, BackgroundTask task) throws IOException {
+        var document = new BlueprintDocument();
+        read(path, document, task);
+        return document;
+    }
+
+    /**
+     * Hand the file's records to the sink one at a time, without building a document
+     * @param task reports progress per node and can cancel the read, or null
+     */
+    public static void read(Path path, BlueprintSink sink, BackgroundTask task) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(STR."Blueprint file is too large to map: \{size} bytes");
+            }
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+            read(buffer, sink, task);
+        }
+    }
+
+    public static BlueprintDocument read(ByteBuffer buffer) throws IOException {
+        return read(buffer, (BackgroundTask) null);
+    }
+
+    public static BlueprintDocument read(ByteBuffer buffer, BackgroundTask task) throws IOException {
+        var document = new BlueprintDocument();
+        read(buffer, document, task);
+        return document;
+    }
+
+    /**
+     * Hand the buffer's records to the sink one at a time, without building a document
+     * @param task reports progress per node and can cancel the read, or null
+     */
+    public static void read(ByteBuffer buffer, BlueprintSink sink, BackgroundTask task) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int magic = buffer.getInt();
+            if (magic != MAGIC) {
+                throw new IOException("Not a blueprint file, bad magic number");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException(STR."Unsupported blueprint file version \{version}, expected \{VERSION}");
+            }
+            buffer.getShort(); // flags
+
+            var strings = new String[count(buffer)];
+            for (int i = 0; i < strings.length; i++) {
+                int length = count(buffer);
+                strings[i] = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+                buffer.position(buffer.position() + length);
+            }
+
+            int numNodes = count(buffer);
+            for (int n = 0; n < numNodes; n++) {
+                if (task != null) {
+                    task.progress(buffer.position(), buffer.limit());
+                }
+                var node = new BlueprintDocument.NodeRecord();
+                node.id = buffer.getLong();
+                node.type = string(strings, buffer.getInt());
+                node.label = string(strings, buffer.getInt());
+                node.color = buffer.getInt();
+                node.x = buffer.getFloat();
+                node.y = buffer.getFloat();
+
+                var props = node.props;
+                for (int i = count(buffer); i > 0; i--) {
+                    props.strings.put(string(strings, buffer.getInt()), string(strings, buffer.getInt()));
+                }
+                for (int i = count(buffer); i > 0; i--) {
+                    props.ints.put(string(strings, buffer.getInt()), buffer.getInt());
+                }
+                for (int i = count(buffer); i > 0; i--) {
+                    props.floats.put(string(strings, buffer.getInt()), buffer.getFloat());
+                }
+                for (int i = count(buffer); i > 0; i--) {
+                    props.bools.put(string(strings, buffer.getInt()), buffer.get() != 0);
+                }
+
+                readPins(buffer, strings, node.inputs);
+                readPins(buffer, strings, node.outputs);
+                sink.node(node);
+            }
+
+            int numLinks = count(buffer);
+            for (int i = 0; i < numLinks; i++) {
+                sink.link(new BlueprintDocument.LinkRecord(
+                    buffer.getInt(), buffer.getShort(), buffer.getInt(), buffer.getShort()));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Blueprint file is truncated or corrupt", e);
+        }
+    }
+
+    private static void readPins(ByteBuffer buffer, String[] strings, List<BlueprintDocument.PinRecord> pins) throws IOException {
+        int numPins = buffer.getShort();
+        for (int i = 0; i < numPins; i++) {
+            var label = string(strings, buffer.getInt());
+            int type = buffer.get();
+            if (type < 0 || type >= PIN_TYPES.length) {
+                throw new IOException(STR."Unknown pin type \{type}");
+            }
+            pins.add(new BlueprintDocument.PinRecord(label, PIN_TYPES[type]));
+        }
+    }
+
+    private static int count(ByteBuffer buffer) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            // every counted item takes at least one byte, so this is a corrupt count
+            throw new IOException(STR."Invalid count \{count} at offset \{buffer.position() - 4}");
+        }
+        return count;
+    }
+
+    private static String string(String[] strings, int index) throws IOException {
+        if (index == NO_STRING) {
+            return null;
+        }
+        if (index < 0 || index >= strings.length) {
+            throw new IOException(STR."Invalid string index \{index}");
+        }
+        return strings[index];
+    }
+
+    // Helpers ----------------------------------------------------------------
+
+    /**
+     * Deduplicated strings in first-seen order
+     */
+    private static class StringTable {
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> indices = new HashMap<>();
+
+        void add(String value) {
+            if (value != null && !indices.containsKey(value)) {
+                indices.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        int indexOf(String value) {
+            return (value == null) ? NO_STRING : indices.get(value);
+        }
+    }
+
+    /**
+     * Buffered little endian writes to a channel, {@link #ensure(int)} before each group of puts
+     */
+    private static class ChannelOutput implements AutoCloseable {
+        final FileChannel channel;
+        final ByteBuffer buffer;
+
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        ByteBuffer ensure(int numBytes) throws IOException {
+            if (buffer.remaining() < numBytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        /**
+         * Write a length-prefixed byte array, in chunks if it's bigger than the buffer
+         */
+        void putBytes(byte[] bytes) throws IOException {
+            ensure(4).putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package lando.systems.game.ui.nodeeditor.io;
+
+import com.badlogic.gdx.Gdx;
+import imgui.extension.nodeditor.NodeEditor;
+import lando.systems.game.ui.nodeeditor.EditorSession;
+import lando.systems.game.ui.nodeeditor.NodeDesc;
+import lando.systems.game.ui.nodeeditor.objects.Link2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+import lando.systems.game.ui.nodeeditor.objects.NodeProperties;
+import lando.systems.game.ui.nodeeditor.objects.Pin2;
+import lando.systems.game.ui.nodeeditor.objects.PinType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Plain data snapshot of an {@link EditorSession}, the in-memory form of a saved blueprint.
+ * <p>
+ * Records don't reference live editor objects, so a document can be read or written
+ * on any thread. Only {@link #capture(EditorSession, BlueprintSink)} and {@link SessionLoader}
+ * touch the session and node editor, and must run on the render thread with the editor context current.
+ * <p>
+ * Formats that stream records one at a time go through a {@link BlueprintSink} rather than
+ * a whole document, so they never hold more than one node in memory.
+ */
+public class BlueprintDocument implements BlueprintSink {
+
+    private static final String TAG = BlueprintDocument.class.getSimpleName();
+
+    public static class NodeRecord {
+        /** global id of the node when it was saved, ids are reassigned on load */
+        public long id;
+        /** {@link NodeDesc#type} the node was created from */
+        public String type;
+        public String label;
+        public int color;
+        public float x;
+        public float y;
+        public final NodeProperties props = new NodeProperties();
+        public final List<PinRecord> inputs = new ArrayList<>();
+        public final List<PinRecord> outputs = new ArrayList<>();
+    }
+
+    public static class PinRecord {
+        public String label;
+        public PinType type;
+
+        public PinRecord() {}
+
+        public PinRecord(String label, PinType type) {
+            this.label = label;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Link from an output pin to an input pin, nodes are indices into {@link #nodes},
+     * pins are indices into the node's outputs and inputs respectively
+     */
+    public static class LinkRecord {
+        public int srcNode;
+        public int srcPin;
+        public int dstNode;
+        public int dstPin;
+
+        public LinkRecord() {}
+
+        public LinkRecord(int srcNode, int srcPin, int dstNode, int dstPin) {
+            this.srcNode = srcNode;
+            this.srcPin = srcPin;
+            this.dstNode = dstNode;
+            this.dstPin = dstPin;
+        }
+    }
+
+    public final List<NodeRecord> nodes = new ArrayList<>();
+    public final List<LinkRecord> links = new ArrayList<>();
+
+    @Override
+    public void node(NodeRecord node) {
+        nodes.add(node);
+    }
+
+    @Override
+    public void link(LinkRecord link) {
+        links.add(link);
+    }
+
+    /**
+     * Send all records in this document to the sink
+     */
+    public void writeTo(BlueprintSink sink) {
+        nodes.forEach(sink::node);
+        links.forEach(sink::link);
+    }
+
+    /**
+     * Snapshot the session's nodes, links and node positions
+     */
+    public static BlueprintDocument capture(EditorSession session) {
+        var document = new BlueprintDocument();
+        capture(session, document);
+        return document;
+    }
+
+    /**
+     * Stream the session's nodes, links and node positions to the sink, one record at a time.
+     * Pins that were removed from the session are left out, and link pin indices count only the pins that are kept.
+     */
+    public static void capture(EditorSession session, BlueprintSink sink) {
+        // node indices are dense slot map indices, links refer to nodes by slot
+        var nodeIndexBySlot = new int[session.nodes.slotCount()];
+        for (int i = 0; i < session.nodes.size(); i++) {
+            var node = session.nodes.get(i);
+            nodeIndexBySlot[session.nodes.slotAt(i)] = i;
+
+            var record = new NodeRecord();
+            record.id = node.globalId;
+            record.type = node.type;
+            record.label = node.label;
+            record.color = node.color;
+            record.x = NodeEditor.getNodePositionX(node.globalId);
+            record.y = NodeEditor.getNodePositionY(node.globalId);
+            record.props.copyFrom(node.props);
+            // removing a pin leaves it in the node's pin lists
+            for (var pin : node.inputs) {
+                if (session.pins.contains(pin.handle)) {
+                    record.inputs.add(new PinRecord(pin.label, pin.type));
+                }
+            }
+            for (var pin : node.outputs) {
+                if (session.pins.contains(pin.handle)) {
+                    record.outputs.add(new PinRecord(pin.label, pin.type));
+                }
+            }
+            sink.node(record);
+        }
+
+        for (int i = 0; i < session.links.size(); i++) {
+            var link = session.links.get(i);
+            var src = link.src.node;
+            var dst = link.dst.node;
+            sink.link(new LinkRecord(
+                nodeIndexBySlot[src.slot()], indexOfPresent(session, src.outputs, link.src),
+                nodeIndexBySlot[dst.slot()], indexOfPresent(session, dst.inputs, link.dst)));
+        }
+    }
+
+    /**
+     * @return the index of the pin among the pins in the list that are in the session
+     */
+    private static int indexOfPresent(EditorSession session, List<Pin2> pins, Pin2 pin) {
+        int index = 0;
+        for (var other : pins) {
+            if (other == pin) {
+                return index;
+            }
+            if (session.pins.contains(other.handle)) {
+                index++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Create the document's nodes and links in the session, see {@link SessionLoader}
+     *
+     * @return the created nodes, in the same order as {@link #nodes}, with null for skipped nodes
+     */
+    public List<Node2> instantiate(EditorSession session, Map<String, NodeDesc> nodeRegistry) {
+        var loader = new SessionLoader(session, nodeRegistry);
+        writeTo(loader);
+        return loader.created;
+    }
+
+    /**
+     * Creates nodes and links in a session as their records arrive, and moves the nodes to their saved positions.
+     * Nodes with a type that isn't in the registry are skipped, along with their links.
+     * Pins the node type has but the record doesn't list were removed before the document was captured,
+     * so they're removed again, matching the record's pins to the node's in order by label and type.
+     */
+    public static class SessionLoader implements BlueprintSink {
+
+        private final EditorSession session;
+        private final Map<String, NodeDesc> nodeRegistry;
+
+        /**
+         * Nodes created so far, in record order, with null for skipped nodes
+         */
+        public final List<Node2> created = new ArrayList<>();
+        public int numLinks = 0;
+
+        public SessionLoader(EditorSession session, Map<String, NodeDesc> nodeRegistry) {
+            this.session = session;
+            this.nodeRegistry = nodeRegistry;
+        }
+
+        @Override
+        public void node(NodeRecord record) {
+            var desc = nodeRegistry.get(record.type);
+            if (desc == null) {
+                Gdx.app.error(TAG, STR."Skipping node \{record.id}, unknown node type '\{record.type}'");
+                created.add(null);
+                return;
+            }
+
+            var node = new Node2(desc);
+            node.label = record.label;
+            node.color = record.color;
+            node.props.copyFrom(record.props);
+            session.addNode(node);
+            removeUnlisted(node.inputs, record.inputs);
+            removeUnlisted(node.outputs, record.outputs);
+            session.moveNode(node, record.x, record.y);
+            created.add(node);
+        }
+
+        private void removeUnlisted(List<Pin2> pins, List<PinRecord> listed) {
+            int next = 0;
+            for (var pin : pins) {
+                if (next < listed.size()
+                    && Objects.equals(pin.label, listed.get(next).label) && pin.type == listed.get(next).type) {
+                    next++;
+                } else {
+                    session.removePin(pin);
+                }
+            }
+        }
+
+        @Override
+        public void link(LinkRecord record) {
+            var src = pin(record.srcNode, record.srcPin, true);
+            var dst = pin(record.dstNode, record.dstPin, false);
+            if (src == null || dst == null) {
+                Gdx.app.error(TAG, STR."Skipping link \{record.srcNode}:\{record.srcPin} -> \{record.dstNode}:\{record.dstPin}, pin not found");
+                return;
+            }
+            session.addLink(new Link2(src, dst));
+            numLinks++;
+        }
+
+        private Pin2 pin(int nodeIndex, int pinIndex, boolean isOutput) {
+            if (nodeIndex < 0 || nodeIndex >= created.size()) {
+                return null;
+            }
+            var node = created.get(nodeIndex);
+            if (node == null) {
+                return null;
+            }
+            // pin indices count only the pins that are in the session
+            var pins = isOutput ? node.outputs : node.inputs;
+            int index = 0;
+            for (var pin : pins) {
+                if (!session.pins.contains(pin.handle)) continue;
+                if (index++ == pinIndex) {
+                    return pin;
+                }
+            }
+            return null;
+        }
+    }
+}
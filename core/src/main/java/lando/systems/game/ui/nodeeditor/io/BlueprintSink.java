@@ -0,0 +1,32 @@
+package lando.systems.game.ui.nodeeditor.io;
+
+import lando.systems.game.ui.BackgroundTask;
+
+/**
+ * Receives the records of a blueprint document in order: all nodes, then all links
+ */
+public interface BlueprintSink {
+    void node(BlueprintDocument.NodeRecord node);
+    void link(BlueprintDocument.LinkRecord link);
+
+    /**
+     * @return a sink that forwards records to {@code sink} and reports progress to the task after each one
+     */
+    static BlueprintSink withProgress(BlueprintSink sink, BackgroundTask task, long numRecords) {
+        return new BlueprintSink() {
+            long numDone = 0;
+
+            @Override
+            public void node(BlueprintDocument.NodeRecord node) {
+                sink.node(node);
+                task.progress(++numDone, numRecords);
+            }
+
+            @Override
+            public void link(BlueprintDocument.LinkRecord link) {
+                sink.link(link);
+                task.progress(++numDone, numRecords);
+            }
+        };
+    }
+}
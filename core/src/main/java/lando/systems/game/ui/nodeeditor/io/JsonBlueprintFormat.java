@@ -0,0 +1,243 @@
+package lando.systems.game.ui.nodeeditor.io;
+
+import lando.systems.game.ui.BackgroundTask;
+import lando.systems.game.ui.nodeeditor.io.JsonPullParser.Token;
+import lando.systems.game.ui.nodeeditor.objects.PinType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Streaming JSON import/export for blueprint documents, see {@link JsonBlueprintWriter} for the layout.
+ * <p>
+ * Reading is a single pass with {@link JsonPullParser}, each node and link record
+ * is handed to a {@link BlueprintSink} as soon as it's parsed, so memory use stays flat
+ * regardless of document size when the sink doesn't keep the records around.
+ */
+public class JsonBlueprintFormat {
+
+    public static final String EXTENSION = "json";
+    public static final String FORMAT = "blueprint";
+    public static final int VERSION = 1;
+
+    // Writing ----------------------------------------------------------------
+
+    public static void write(BlueprintDocument document, Path path) throws IOException {
+        try (var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(document, writer);
+        }
+    }
+
+    public static void write(BlueprintDocument document, Writer out) throws IOException {
+        try (var json = new JsonBlueprintWriter(out)) {
+            document.writeTo(json);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param task reports progress per record and can cancel the write
+     */
+    public static void write(BlueprintDocument document, Writer out, BackgroundTask task) throws IOException {
+        long numRecords = document.nodes.size() + document.links.size();
+        try (var json = new JsonBlueprintWriter(out)) {
+            document.writeTo(BlueprintSink.withProgress(json, task, numRecords));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Reading ----------------------------------------------------------------
+
+    public static BlueprintDocument read(Path path) throws IOException {
+        var document = new BlueprintDocument();
+        try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            read(reader, document);
+        }
+        return document;
+    }
+
+    public static void read(Reader reader, BlueprintSink sink) throws IOException {
+        var parser = new JsonPullParser(reader);
+        parser.expect(Token.BEGIN_OBJECT);
+        while (parser.next() == Token.NAME) {
+            if (parser.nameEquals("format")) {
+                parser.expect(Token.STRING);
+                if (!FORMAT.equals(parser.stringValue())) {
+                    throw parser.error(STR."Not a blueprint document, format is '\{parser.stringValue()}'");
+                }
+            } else if (parser.nameEquals("version")) {
+                parser.expect(Token.NUMBER);
+                int version = parser.intValue();
+                if (version != VERSION) {
+                    throw parser.error(STR."Unsupported blueprint document version \{version}, expected \{VERSION}");
+                }
+            } else if (parser.nameEquals("nodes")) {
+                parser.expect(Token.BEGIN_ARRAY);
+                while (parser.next() == Token.BEGIN_OBJECT) {
+                    sink.node(readNode(parser));
+                }
+                requireToken(parser, Token.END_ARRAY);
+            } else if (parser.nameEquals("links")) {
+                parser.expect(Token.BEGIN_ARRAY);
+                while (parser.next() == Token.BEGIN_OBJECT) {
+                    sink.link(readLink(parser));
+                }
+                requireToken(parser, Token.END_ARRAY);
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        requireToken(parser, Token.END_OBJECT);
+    }
+
+    private static BlueprintDocument.NodeRecord readNode(JsonPullParser parser) throws IOException {
+        var node = new BlueprintDocument.NodeRecord();
+        while (parser.next() == Token.NAME) {
+            if (parser.nameEquals("id")) {
+                parser.expect(Token.NUMBER);
+                node.id = parser.longValue();
+            } else if (parser.nameEquals("type")) {
+                node.type = readString(parser);
+            } else if (parser.nameEquals("label")) {
+                node.label = readString(parser);
+            } else if (parser.nameEquals("color")) {
+                parser.expect(Token.NUMBER);
+                node.color = (int) parser.longValue();
+            } else if (parser.nameEquals("x")) {
+                parser.expect(Token.NUMBER);
+                node.x = parser.floatValue();
+            } else if (parser.nameEquals("y")) {
+                parser.expect(Token.NUMBER);
+                node.y = parser.floatValue();
+            } else if (parser.nameEquals("props")) {
+                readProps(parser, node);
+            } else if (parser.nameEquals("inputs")) {
+                readPins(parser, node.inputs);
+            } else if (parser.nameEquals("outputs")) {
+                readPins(parser, node.outputs);
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        requireToken(parser, Token.END_OBJECT);
+        return node;
+    }
+
+    private static void readProps(JsonPullParser parser, BlueprintDocument.NodeRecord node) throws IOException {
+        var props = node.props;
+        parser.expect(Token.BEGIN_OBJECT);
+        while (parser.next() == Token.NAME) {
+            var group = parser.stringValue();
+            parser.expect(Token.BEGIN_OBJECT);
+            while (parser.next() == Token.NAME) {
+                var key = parser.stringValue();
+                switch (group) {
+                    case "strings" -> props.strings.put(key, readString(parser));
+                    case "ints" -> {
+                        parser.expect(Token.NUMBER);
+                        props.ints.put(key, parser.intValue());
+                    }
+                    case "floats" -> {
+                        parser.expect(Token.NUMBER);
+                        props.floats.put(key, parser.floatValue());
+                    }
+                    case "bools" -> {
+                        var token = parser.next();
+                        if (token != Token.TRUE && token != Token.FALSE) {
+                            throw parser.error(STR."Expected a boolean for property '\{key}'");
+                        }
+                        props.bools.put(key, token == Token.TRUE);
+                    }
+                    default -> {
+                        parser.next();
+                        parser.skipValue();
+                    }
+                }
+            }
+            requireToken(parser, Token.END_OBJECT);
+        }
+        requireToken(parser, Token.END_OBJECT);
+    }
+
+    private static void readPins(JsonPullParser parser, List<BlueprintDocument.PinRecord> pins) throws IOException {
+        parser.expect(Token.BEGIN_ARRAY);
+        while (parser.next() == Token.BEGIN_OBJECT) {
+            var pin = new BlueprintDocument.PinRecord();
+            while (parser.next() == Token.NAME) {
+                if (parser.nameEquals("label")) {
+                    pin.label = readString(parser);
+                } else if (parser.nameEquals("type")) {
+                    var type = readString(parser);
+                    try {
+                        pin.type = PinType.valueOf(type);
+                    } catch (IllegalArgumentException | NullPointerException e) {
+                        throw parser.error(STR."Unknown pin type '\{type}'");
+                    }
+                } else {
+                    parser.next();
+                    parser.skipValue();
+                }
+            }
+            requireToken(parser, Token.END_OBJECT);
+            if (pin.type == null) {
+                throw parser.error("Pin is missing its type");
+            }
+            pins.add(pin);
+        }
+        requireToken(parser, Token.END_ARRAY);
+    }
+
+    private static BlueprintDocument.LinkRecord readLink(JsonPullParser parser) throws IOException {
+        var link = new BlueprintDocument.LinkRecord();
+        while (parser.next() == Token.NAME) {
+            boolean isSrc = parser.nameEquals("src");
+            if (isSrc || parser.nameEquals("dst")) {
+                parser.expect(Token.BEGIN_ARRAY);
+                parser.expect(Token.NUMBER);
+                int node = parser.intValue();
+                parser.expect(Token.NUMBER);
+                int pin = parser.intValue();
+                parser.expect(Token.END_ARRAY);
+                if (isSrc) {
+                    link.srcNode = node;
+                    link.srcPin = pin;
+                } else {
+                    link.dstNode = node;
+                    link.dstPin = pin;
+                }
+            } else {
+                parser.next();
+                parser.skipValue();
+            }
+        }
+        requireToken(parser, Token.END_OBJECT);
+        return link;
+    }
+
+    private static String readString(JsonPullParser parser) throws IOException {
+        var token = parser.next();
+        if (token == Token.NULL) {
+            return null;
+        }
+        if (token != Token.STRING) {
+            throw parser.error(STR."Expected a string but found \{token}");
+        }
+        return parser.stringValue();
+    }
+
+    private static void requireToken(JsonPullParser parser, Token expected) throws IOException {
+        if (parser.token() != expected) {
+            throw parser.error(STR."Expected \{expected} but found \{parser.token()}");
+        }
+    }
+}
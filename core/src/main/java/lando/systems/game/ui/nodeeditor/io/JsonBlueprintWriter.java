@@ -0,0 +1,186 @@
+package lando.systems.game.ui.nodeeditor.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a blueprint document as JSON, one node or link per line, so files diff cleanly
+ * and records can be written as they're produced without building the whole document first.
+ * Map entries are written in key order to keep the output stable between saves.
+ * <p>
+ * {@link BlueprintSink} methods can't throw checked exceptions, write errors are rethrown
+ * as {@link UncheckedIOException}, which {@link JsonBlueprintFormat} unwraps.
+ */
+public class JsonBlueprintWriter implements BlueprintSink, AutoCloseable {
+
+    private final Writer out;
+    private final List<String> keys = new ArrayList<>();
+    private boolean isWritingLinks = false;
+    private boolean isFirstInArray = true;
+
+    public JsonBlueprintWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write("{\n");
+        out.write(STR."  \"format\": \"\{JsonBlueprintFormat.FORMAT}\",\n");
+        out.write(STR."  \"version\": \{JsonBlueprintFormat.VERSION},\n");
+        out.write("  \"nodes\": [");
+    }
+
+    @Override
+    public void node(BlueprintDocument.NodeRecord node) {
+        if (isWritingLinks) {
+            throw new IllegalStateException("All nodes must be written before links");
+        }
+        try {
+            beginRecord();
+            out.write("{\"id\":");
+            out.write(Long.toString(node.id));
+            out.write(",\"type\":");
+            writeString(node.type);
+            out.write(",\"label\":");
+            writeString(node.label);
+            out.write(",\"color\":");
+            out.write(Integer.toString(node.color));
+            out.write(",\"x\":");
+            writeFloat(node.x);
+            out.write(",\"y\":");
+            writeFloat(node.y);
+
+            out.write(",\"props\":{");
+            boolean isFirst = true;
+            isFirst = writeProps("strings", node.props.strings, isFirst);
+            isFirst = writeProps("ints", node.props.ints, isFirst);
+            isFirst = writeProps("floats", node.props.floats, isFirst);
+            writeProps("bools", node.props.bools, isFirst);
+            out.write('}');
+
+            out.write(",\"inputs\":");
+            writePins(node.inputs);
+            out.write(",\"outputs\":");
+            writePins(node.outputs);
+            out.write('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void link(BlueprintDocument.LinkRecord link) {
+        try {
+            if (!isWritingLinks) {
+                endArray();
+                out.write(",\n  \"links\": [");
+                isWritingLinks = true;
+            }
+            beginRecord();
+            out.write(STR."{\"src\":[\{link.srcNode},\{link.srcPin}],\"dst\":[\{link.dstNode},\{link.dstPin}]}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!isWritingLinks) {
+            endArray();
+            out.write(",\n  \"links\": [");
+        }
+        endArray();
+        out.write("\n}\n");
+        out.flush();
+    }
+
+    private void beginRecord() throws IOException {
+        out.write(isFirstInArray ? "\n    " : ",\n    ");
+        isFirstInArray = false;
+    }
+
+    private void endArray() throws IOException {
+        out.write(isFirstInArray ? "]" : "\n  ]");
+        isFirstInArray = true;
+    }
+
+    private boolean writeProps(String name, Map<String, ?> props, boolean isFirst) throws IOException {
+        if (props.isEmpty()) {
+            return isFirst;
+        }
+        if (!isFirst) {
+            out.write(',');
+        }
+        writeString(name);
+        out.write(":{");
+
+        keys.clear();
+        keys.addAll(props.keySet());
+        Collections.sort(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            var key = keys.get(i);
+            if (i > 0) {
+                out.write(',');
+            }
+            writeString(key);
+            out.write(':');
+            switch (props.get(key)) {
+                case String value -> writeString(value);
+                case Float value -> writeFloat(value);
+                case null -> out.write("null");
+                default -> out.write(props.get(key).toString());
+            }
+        }
+        out.write('}');
+        return false;
+    }
+
+    private void writePins(List<BlueprintDocument.PinRecord> pins) throws IOException {
+        out.write('[');
+        for (int i = 0; i < pins.size(); i++) {
+            var pin = pins.get(i);
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write("{\"label\":");
+            writeString(pin.label);
+            out.write(",\"type\":");
+            writeString(pin.type.name());
+            out.write('}');
+        }
+        out.write(']');
+    }
+
+    private void writeFloat(float value) throws IOException {
+        // json has no representation for nan or infinity
+        out.write(Float.isFinite(value) ? Float.toString(value) : "0");
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> (c < 0x20) ? String.format("\\u%04x", (int) c) : null;
+            };
+            if (escaped != null) {
+                out.write(value, start, i - start);
+                out.write(escaped);
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+}
@@ -0,0 +1,288 @@
+package lando.systems.game.ui.nodeeditor.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON tokenizer: {@link #next()} advances one token at a time over a {@link Reader},
+ * nothing is buffered beyond the current token, so memory use doesn't depend on the size of the input.
+ * <p>
+ * Names and string values are unescaped into a reused buffer, numbers keep their text
+ * until they're requested as a specific type.
+ */
+public class JsonPullParser {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY,
+        NAME, STRING, NUMBER, TRUE, FALSE, NULL,
+        END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private int peeked = NONE;
+
+    // text of the current NAME, STRING or NUMBER token
+    private final StringBuilder text = new StringBuilder();
+    private Token token;
+
+    // container nesting, to tell names from string values: true for objects
+    private boolean[] isObject = new boolean[32];
+    private boolean[] expectsName = new boolean[32];
+    private int depth = 0;
+
+    private int line = 1;
+
+    public JsonPullParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    public Token token() {
+        return token;
+    }
+
+    /**
+     * @return the next token, or {@link Token#END_DOCUMENT} at the end of the input
+     */
+    public Token next() throws IOException {
+        int c = skipWhitespaceAndSeparators();
+        switch (c) {
+            case -1 -> {
+                if (depth > 0) throw error("Unexpected end of input");
+                token = Token.END_DOCUMENT;
+            }
+            case '{' -> { push(true); token = Token.BEGIN_OBJECT; }
+            case '}' -> { pop(true); token = Token.END_OBJECT; }
+            case '[' -> { push(false); token = Token.BEGIN_ARRAY; }
+            case ']' -> { pop(false); token = Token.END_ARRAY; }
+            case '"' -> {
+                readString();
+                if (depth > 0 && isObject[depth - 1] && expectsName[depth - 1]) {
+                    int colon = skipWhitespace();
+                    if (colon != ':') throw error("Expected ':' after name");
+                    expectsName[depth - 1] = false;
+                    token = Token.NAME;
+                    return token;
+                }
+                token = Token.STRING;
+            }
+            case 't' -> { expectLiteral("rue"); token = Token.TRUE; }
+            case 'f' -> { expectLiteral("alse"); token = Token.FALSE; }
+            case 'n' -> { expectLiteral("ull"); token = Token.NULL; }
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber(c);
+                    token = Token.NUMBER;
+                } else {
+                    throw error(STR."Unexpected character '\{(char) c}'");
+                }
+            }
+        }
+        // after a value, the enclosing object expects a name again
+        if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY && depth > 0 && isObject[depth - 1]) {
+            expectsName[depth - 1] = true;
+        }
+        return token;
+    }
+
+    /**
+     * Advance and require the specified token
+     */
+    public void expect(Token expected) throws IOException {
+        var actual = next();
+        if (actual != expected) {
+            throw error(STR."Expected \{expected} but found \{actual}");
+        }
+    }
+
+    /**
+     * Skip the value that starts with the current token, including any nested values
+     */
+    public void skipValue() throws IOException {
+        if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY) {
+            return;
+        }
+        int targetDepth = depth - 1;
+        while (depth > targetDepth) {
+            if (next() == Token.END_DOCUMENT) {
+                throw error("Unexpected end of input");
+            }
+        }
+    }
+
+    public String stringValue() {
+        return text.toString();
+    }
+
+    /**
+     * @return true if the current NAME token equals the value, without allocating a string
+     */
+    public boolean nameEquals(String value) {
+        return token == Token.NAME && value.contentEquals(text);
+    }
+
+    public long longValue() throws IOException {
+        requireNumber();
+        try {
+            return Long.parseLong(text, 0, text.length(), 10);
+        } catch (NumberFormatException e) {
+            return (long) doubleValue();
+        }
+    }
+
+    public int intValue() throws IOException {
+        long value = longValue();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error(STR."Number out of int range: \{text}");
+        }
+        return (int) value;
+    }
+
+    public double doubleValue() throws IOException {
+        requireNumber();
+        try {
+            return Double.parseDouble(text.toString());
+        } catch (NumberFormatException e) {
+            throw error(STR."Invalid number: \{text}");
+        }
+    }
+
+    public float floatValue() throws IOException {
+        return (float) doubleValue();
+    }
+
+    public IOException error(String message) {
+        return new IOException(STR."\{message} (line \{line})");
+    }
+
+    private void requireNumber() throws IOException {
+        if (token != Token.NUMBER) {
+            throw error(STR."Expected a number but found \{token}");
+        }
+    }
+
+    private void push(boolean object) {
+        if (depth == isObject.length) {
+            isObject = Arrays.copyOf(isObject, depth * 2);
+            expectsName = Arrays.copyOf(expectsName, depth * 2);
+        }
+        isObject[depth] = object;
+        expectsName[depth] = object;
+        depth++;
+    }
+
+    private void pop(boolean object) throws IOException {
+        if (depth == 0 || isObject[depth - 1] != object) {
+            throw error(object ? "Unexpected '}'" : "Unexpected ']'");
+        }
+        depth--;
+    }
+
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            switch (c) {
+                case -1 -> throw error("Unterminated string");
+                case '"' -> { return; }
+                case '\\' -> {
+                    int escaped = read();
+                    switch (escaped) {
+                        case '"', '\\', '/' -> text.append((char) escaped);
+                        case 'b' -> text.append('\b');
+                        case 'f' -> text.append('\f');
+                        case 'n' -> text.append('\n');
+                        case 'r' -> text.append('\r');
+                        case 't' -> text.append('\t');
+                        case 'u' -> {
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0) throw error("Invalid unicode escape");
+                                code = (code << 4) | digit;
+                            }
+                            text.append((char) code);
+                        }
+                        default -> throw error("Invalid escape sequence");
+                    }
+                }
+                default -> text.append((char) c);
+            }
+        }
+    }
+
+    private void readNumber(int first) throws IOException {
+        text.setLength(0);
+        text.append((char) first);
+        while (true) {
+            int c = peek();
+            boolean isNumberChar = (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+            if (!isNumberChar) {
+                return;
+            }
+            text.append((char) read());
+        }
+    }
+
+    private void expectLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+    }
+
+    private int skipWhitespaceAndSeparators() throws IOException {
+        while (true) {
+            int c = skipWhitespace();
+            if (c != ',') {
+                return c;
+            }
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '\n') {
+                line++;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (peeked == NONE) {
+            peeked = readFromBuffer();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        if (peeked != NONE) {
+            int c = peeked;
+            peeked = NONE;
+            return c;
+        }
+        return readFromBuffer();
+    }
+
+    private int readFromBuffer() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
@@ -0,0 +1,716 @@
+package lando.systems.game.ui.nodeeditor.io;
+
+import com.badlogic.gdx.Gdx;
+import com.github.tommyettinger.ds.LongLongMap;
+import com.github.tommyettinger.ds.LongObjectMap;
+import imgui.extension.nodeditor.flag.NodeEditorPinKind;
+import lando.systems.game.ui.nodeeditor.EditorSession;
+import lando.systems.game.ui.nodeeditor.NodeDesc;
+import lando.systems.game.ui.nodeeditor.objects.Link2;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+import lando.systems.game.ui.nodeeditor.objects.NodeProperties;
+import lando.systems.game.ui.nodeeditor.objects.Pin2;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only binary journal of session edits, so work survives a crash without rewriting
+ * the whole document on every edit. Little endian throughout.
+ * <pre>
+ * header   int magic 'BJNL', short version, short flags (reserved, 0), long epoch
+ * records  byte op, then per op:
+ *            ADD_NODE      long node, string type, string label, int color,
+ *                          int count + (string key, string value) string properties
+ *                          int count + (string key, int value) int properties
+ *                          int count + (string key, float value) float properties
+ *                          int count + (string key, byte value) bool properties
+ *            REMOVE_NODE   long node
+ *            ADD_LINK      long src node, short src pin, long dst node, short dst pin
+ *            REMOVE_LINK   long src node, short src pin, long dst node, short dst pin
+ *            SET_PROPERTY  long node, string key, string value
+ *            MOVE_NODE     long node, float x, float y
+ *            CLEAR
+ *            ADD_PIN       long node, byte output (1) or input (0), short pin
+ *            REMOVE_PIN    long node, byte output (1) or input (0), short pin
+ * </pre>
+ * Strings are an int byte length, {@link #NULL_STRING} for null, followed by utf-8 bytes.
+ * Nodes are referred to by the global id they had when the record was written, pins by their index
+ * in the node's outputs or inputs, counting pins that were removed from the session. A run that resumes a journal without compacting it keeps referring to the
+ * recovered nodes by the ids they have in the snapshot, and numbers the nodes it adds after the highest of those.
+ * The epoch names the {@link BinaryBlueprintFormat} snapshot the journal applies to, {@link #NO_SNAPSHOT}
+ * if it starts from an empty session.
+ * <p>
+ * Records are encoded on the render thread as the session reports edits, and written by a background
+ * thread in group commits: everything recorded since the last commit goes out in one write and one sync,
+ * at most every {@link #COMMIT_INTERVAL} seconds. Once the journal reaches {@link #COMPACT_THRESHOLD} bytes
+ * the session is captured into a new snapshot and the journal starts over. The new snapshot is in place
+ * before the new journal replaces the old one, and the old snapshot is only deleted after that,
+ * so a crash at any point leaves a journal and the snapshot it applies to.
+ */
+public class SessionJournal implements EditorSession.SessionListener {
+
+    private static final String TAG = SessionJournal.class.getSimpleName();
+
+    public static final String JOURNAL_FILE = "session.journal";
+    public static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    public static final int MAGIC = ('B' << 24) | ('J' << 16) | ('N' << 8) | 'L';
+    public static final short VERSION = 1;
+    public static final long NO_SNAPSHOT = 0L;
+    public static final int NULL_STRING = -1;
+
+    /** seconds between group commits */
+    public static final float COMMIT_INTERVAL = 0.5f;
+    /** journal size in bytes at which it's compacted into a new snapshot */
+    public static final long COMPACT_THRESHOLD = 4 * 1024 * 1024;
+
+    // pending records are committed early once they reach this size, eg. while loading a large document
+    private static final int MAX_BATCH_SIZE = 256 * 1024;
+    private static final int HEADER_SIZE = 16;
+
+    private static class Op {
+        static final byte ADD_NODE     = 1;
+        static final byte REMOVE_NODE  = 2;
+        static final byte ADD_LINK     = 3;
+        static final byte REMOVE_LINK  = 4;
+        static final byte SET_PROPERTY = 5;
+        static final byte MOVE_NODE    = 6;
+        static final byte CLEAR        = 7;
+        static final byte ADD_PIN      = 8;
+        static final byte REMOVE_PIN   = 9;
+    }
+
+    private final Path directory;
+    private final Path journalPath;
+    private final ExecutorService writer;
+
+    // render thread state
+    private EditorSession session;
+    private ByteBuffer pending;
+    private float sinceCommit;
+    private int recordStart;
+    private long journalSize;
+    private long epoch;
+    // set by recover when the journal has no records on top of its snapshot, so start can append to it as is
+    private boolean isResumable;
+    // ids the resumed journal knows nodes by, keyed by global id. Null once the journal was compacted,
+    // from then on nodes are recorded by their global id
+    private LongLongMap journalIds;
+    private long nextJournalId;
+
+    // writer thread state
+    private FileChannel channel;
+
+    public SessionJournal(Path directory) {
+        this.directory = directory;
+        this.journalPath = directory.resolve(JOURNAL_FILE);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "session-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = ByteBuffer.allocate(16 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        this.sinceCommit = 0f;
+        this.journalSize = 0;
+        this.epoch = NO_SNAPSHOT;
+        this.isResumable = false;
+        this.journalIds = null;
+    }
+
+    // Lifecycle --------------------------------------------------------------
+
+    /**
+     * Rebuild the session left behind by a previous run, from its last snapshot and the journal on top of it.
+     * Call before {@link #start(EditorSession)}, on the render thread with the editor context current.
+     * A journal that can't be read is moved aside rather than overwritten.
+     *
+     * @return the number of journal records that were replayed
+     */
+    public int recover(EditorSession session, Map<String, NodeDesc> nodeRegistry) {
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+
+        try {
+            var buffer = ByteBuffer.wrap(Files.readAllBytes(journalPath)).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a session journal, bad magic number");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException(STR."Unsupported session journal version \{version}, expected \{VERSION}");
+            }
+            buffer.getShort(); // flags
+            epoch = buffer.getLong();
+
+            var replay = new Replay(session, nodeRegistry);
+            if (epoch != NO_SNAPSHOT) {
+                replay.load(snapshotPath(epoch));
+            }
+            int numRecords = replay.apply(buffer);
+            if (buffer.capacity() == HEADER_SIZE) {
+                isResumable = true;
+                journalIds = new LongLongMap(replay.nodesById.size());
+                nextJournalId = 1;
+                for (var entry : replay.nodesById) {
+                    journalIds.put(entry.value.globalId, entry.key);
+                    nextJournalId = Math.max(nextJournalId, entry.key + 1);
+                }
+            }
+            return numRecords;
+        } catch (IOException e) {
+            Gdx.app.error(TAG, STR."Failed to recover session from \{journalPath}", e);
+            try {
+                Files.move(journalPath, journalPath.resolveSibling(STR."\{JOURNAL_FILE}.corrupt"), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveException) {
+                Gdx.app.error(TAG, "Failed to move the unreadable journal aside", moveException);
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Start journaling the session's edits. If the recovered journal is just a snapshot with nothing on top,
+     * new records are appended to it as is. Otherwise the session is compacted into a fresh snapshot first,
+     * so replaying the journal doesn't get slower from run to run.
+     */
+    public void start(EditorSession session) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, STR."Failed to create journal directory \{directory}, edits won't be journaled", e);
+            return;
+        }
+        this.session = session;
+        if (isResumable) {
+            journalSize = HEADER_SIZE;
+            writer.submit(this::openChannel);
+        } else {
+            compact();
+        }
+        session.addSessionListener(this);
+    }
+
+    /**
+     * Commit pending records when the commit interval is up, and compact the journal once it's big enough.
+     * Call once per frame, on the render thread with the editor context current.
+     */
+    public void update(float dt) {
+        if (session == null) {
+            return;
+        }
+        sinceCommit += dt;
+        if (sinceCommit >= COMMIT_INTERVAL) {
+            commit();
+        }
+        if (journalSize >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    /**
+     * Commit pending records and wait for the writer to finish
+     */
+    public void close() {
+        if (session != null) {
+            session.removeSessionListener(this);
+            commit();
+            session = null;
+        }
+        writer.submit(this::closeChannel);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                Gdx.app.error(TAG, "Timed out waiting for the journal writer to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Hand everything recorded since the last commit to the writer, as a single write
+     */
+    public void commit() {
+        sinceCommit = 0f;
+        if (pending.position() == 0) {
+            return;
+        }
+        var batch = ByteBuffer.allocate(pending.position());
+        batch.put(pending.flip()).flip();
+        pending.clear();
+        writer.submit(() -> append(batch));
+    }
+
+    /**
+     * Capture the session into a new snapshot and start an empty journal on top of it
+     */
+    public void compact() {
+        if (session == null) {
+            return;
+        }
+        // anything pending goes to the current journal, so it's complete if compaction fails
+        commit();
+        var document = BlueprintDocument.capture(session);
+        long nextEpoch = epoch + 1;
+        epoch = nextEpoch;
+        journalSize = HEADER_SIZE;
+        // the snapshot is captured with this run's ids
+        journalIds = null;
+        writer.submit(() -> writeSnapshot(document, nextEpoch));
+    }
+
+    /**
+     * Apply a change that replaces most of the session, like loading a document, without journaling it
+     * record by record. The session is compacted once afterwards, so the new snapshot covers the change.
+     * Call on the render thread with the editor context current.
+     */
+    public void replaceSession(Runnable change) {
+        if (session == null) {
+            change.run();
+            return;
+        }
+        session.removeSessionListener(this);
+        try {
+            change.run();
+        } finally {
+            session.addSessionListener(this);
+            compact();
+        }
+    }
+
+    // Session listener -------------------------------------------------------
+
+    @Override
+    public void nodeAdded(Node2 node) {
+        var props = node.props;
+        if (journalIds != null) {
+            journalIds.put(node.globalId, nextJournalId++);
+        }
+        beginRecord(Op.ADD_NODE, 8 + 4);
+        pending.putLong(journalId(node));
+        putString(node.type);
+        putString(node.label);
+        ensure(4).putInt(node.color);
+
+        ensure(4).putInt(props.strings.size());
+        props.strings.forEach((key, value) -> { putString(key); putString(value); });
+        ensure(4).putInt(props.ints.size());
+        props.ints.forEach((key, value) -> { putString(key); ensure(4).putInt(value); });
+        ensure(4).putInt(props.floats.size());
+        props.floats.forEach((key, value) -> { putString(key); ensure(4).putFloat(value); });
+        ensure(4).putInt(props.bools.size());
+        props.bools.forEach((key, value) -> { putString(key); ensure(1).put((byte) (value ? 1 : 0)); });
+        endRecord();
+    }
+
+    @Override
+    public void nodeRemoved(Node2 node) {
+        beginRecord(Op.REMOVE_NODE, 8);
+        pending.putLong(journalId(node));
+        endRecord();
+        if (journalIds != null) {
+            journalIds.remove(node.globalId);
+        }
+    }
+
+    @Override
+    public void pinAdded(Pin2 pin) {
+        putPin(Op.ADD_PIN, pin);
+    }
+
+    @Override
+    public void pinRemoved(Pin2 pin) {
+        putPin(Op.REMOVE_PIN, pin);
+    }
+
+    @Override
+    public void linkAdded(Link2 link) {
+        putLink(Op.ADD_LINK, link);
+    }
+
+    @Override
+    public void linkRemoved(Link2 link) {
+        putLink(Op.REMOVE_LINK, link);
+    }
+
+    @Override
+    public void propertyChanged(Node2 node, String key, String oldValue, String value) {
+        beginRecord(Op.SET_PROPERTY, 8);
+        pending.putLong(journalId(node));
+        putString(key);
+        putString(value);
+        endRecord();
+    }
+
+    @Override
+    public void nodeMoved(Node2 node, float fromX, float fromY, float x, float y) {
+        beginRecord(Op.MOVE_NODE, 8 + 4 + 4);
+        pending.putLong(journalId(node)).putFloat(x).putFloat(y);
+        endRecord();
+    }
+
+    @Override
+    public void sessionCleared() {
+        beginRecord(Op.CLEAR, 0);
+        endRecord();
+        if (journalIds != null) {
+            journalIds.clear();
+        }
+    }
+
+    // Encoding, render thread ------------------------------------------------
+
+    private void putLink(byte op, Link2 link) {
+        var src = link.src.node;
+        var dst = link.dst.node;
+        beginRecord(op, 8 + 2 + 8 + 2);
+        pending.putLong(journalId(src)).putShort((short) src.outputs.indexOf(link.src))
+               .putLong(journalId(dst)).putShort((short) dst.inputs.indexOf(link.dst));
+        endRecord();
+    }
+
+    private long journalId(Node2 node) {
+        return (journalIds == null) ? node.globalId : journalIds.getOrDefault(node.globalId, node.globalId);
+    }
+
+    private void putPin(byte op, Pin2 pin) {
+        var node = pin.node;
+        boolean isOutput = (pin.kind == NodeEditorPinKind.Output);
+        var pins = isOutput ? node.outputs : node.inputs;
+        beginRecord(op, 8 + 1 + 2);
+        pending.putLong(journalId(node)).put((byte) (isOutput ? 1 : 0)).putShort((short) pins.indexOf(pin));
+        endRecord();
+    }
+
+    private void beginRecord(byte op, int numBytes) {
+        if (pending.position() >= MAX_BATCH_SIZE) {
+            commit();
+        }
+        recordStart = pending.position();
+        ensure(1 + numBytes).put(op);
+    }
+
+    private void endRecord() {
+        // pending records count towards the compaction threshold too
+        journalSize += pending.position() - recordStart;
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensure(4).putInt(NULL_STRING);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length).putInt(bytes.length).put(bytes);
+    }
+
+    private ByteBuffer ensure(int numBytes) {
+        if (pending.remaining() < numBytes) {
+            int capacity = Math.max(pending.capacity() * 2, pending.position() + numBytes);
+            var grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            grown.put(pending.flip());
+            pending = grown;
+        }
+        return pending;
+    }
+
+    // Writing, writer thread -------------------------------------------------
+
+    private void append(ByteBuffer batch) {
+        if (channel == null) {
+            // journal couldn't be opened, the error was already logged
+            return;
+        }
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, STR."Failed to append to \{journalPath}", e);
+        }
+    }
+
+    private void writeSnapshot(BlueprintDocument document, long epoch) {
+        try {
+            var snapshot = snapshotPath(epoch);
+            var snapshotTemp = directory.resolve(STR."\{snapshot.getFileName()}.tmp");
+            BinaryBlueprintFormat.write(document, snapshotTemp);
+            Files.move(snapshotTemp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            var journalTemp = directory.resolve(STR."\{JOURNAL_FILE}.tmp");
+            try (var out = FileChannel.open(journalTemp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(epoch)
+                    .flip();
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                out.force(true);
+            }
+            Files.move(journalTemp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // only switch over once the new journal is in place, until then the old one is still valid
+            closeChannel();
+            channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            deleteSnapshotsBefore(epoch);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, STR."Failed to compact \{journalPath}", e);
+        }
+    }
+
+    private void openChannel() {
+        try {
+            channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Gdx.app.error(TAG, STR."Failed to open \{journalPath}", e);
+        }
+    }
+
+    private void deleteSnapshotsBefore(long epoch) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                var name = file.getFileName().toString();
+                if (!name.startsWith(SNAPSHOT_PREFIX) || !name.endsWith(STR.".\{BinaryBlueprintFormat.EXTENSION}")) {
+                    continue;
+                }
+                var stamp = name.substring(SNAPSHOT_PREFIX.length(), name.length() - BinaryBlueprintFormat.EXTENSION.length() - 1);
+                try {
+                    if (Long.parseLong(stamp) < epoch) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (NumberFormatException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Gdx.app.error(TAG, STR."Failed to close \{journalPath}", e);
+        }
+        channel = null;
+    }
+
+    private Path snapshotPath(long epoch) {
+        return directory.resolve(STR."\{SNAPSHOT_PREFIX}\{epoch}.\{BinaryBlueprintFormat.EXTENSION}");
+    }
+
+    // Replay -----------------------------------------------------------------
+
+    /**
+     * Applies a snapshot and journal records to a session, mapping the node ids they were recorded with
+     * to the nodes created for them in this run
+     */
+    private static class Replay {
+        final EditorSession session;
+        final Map<String, NodeDesc> nodeRegistry;
+        final LongObjectMap<Node2> nodesById = new LongObjectMap<>();
+
+        Replay(EditorSession session, Map<String, NodeDesc> nodeRegistry) {
+            this.session = session;
+            this.nodeRegistry = nodeRegistry;
+        }
+
+        /**
+         * Stream the snapshot's records straight into the session, without decoding it into a document first
+         */
+        void load(Path snapshot) throws IOException {
+            var loader = new BlueprintDocument.SessionLoader(session, nodeRegistry);
+            BinaryBlueprintFormat.read(snapshot, new BlueprintSink() {
+                @Override
+                public void node(BlueprintDocument.NodeRecord record) {
+                    loader.node(record);
+                    var node = loader.created.getLast();
+                    if (node != null) {
+                        nodesById.put(record.id, node);
+                    }
+                }
+
+                @Override
+                public void link(BlueprintDocument.LinkRecord record) {
+                    loader.link(record);
+                }
+            }, null);
+        }
+
+        /**
+         * @return the number of records applied
+         */
+        int apply(ByteBuffer buffer) throws IOException {
+            int numRecords = 0;
+            while (buffer.hasRemaining()) {
+                int start = buffer.position();
+                try {
+                    applyRecord(buffer);
+                } catch (BufferUnderflowException e) {
+                    // the last commit didn't make it to disk in full, everything before it did
+                    Gdx.app.error(TAG, STR."Ignoring truncated journal record at offset \{start}");
+                    break;
+                }
+                numRecords++;
+            }
+            return numRecords;
+        }
+
+        private void applyRecord(ByteBuffer buffer) throws IOException {
+            byte op = buffer.get();
+            switch (op) {
+                case Op.ADD_NODE -> {
+                    long id = buffer.getLong();
+                    var type = getString(buffer);
+                    var label = getString(buffer);
+                    int color = buffer.getInt();
+                    var props = new NodeProperties();
+                    for (int i = count(buffer); i > 0; i--) {
+                        props.strings.put(getString(buffer), getString(buffer));
+                    }
+                    for (int i = count(buffer); i > 0; i--) {
+                        props.ints.put(getString(buffer), buffer.getInt());
+                    }
+                    for (int i = count(buffer); i > 0; i--) {
+                        props.floats.put(getString(buffer), buffer.getFloat());
+                    }
+                    for (int i = count(buffer); i > 0; i--) {
+                        props.bools.put(getString(buffer), buffer.get() != 0);
+                    }
+
+                    var desc = nodeRegistry.get(type);
+                    if (desc == null) {
+                        Gdx.app.error(TAG, STR."Skipping node \{id}, unknown node type '\{type}'");
+                        return;
+                    }
+                    var node = new Node2(desc);
+                    node.label = label;
+                    node.color = color;
+                    node.props.copyFrom(props);
+                    session.addNode(node);
+                    nodesById.put(id, node);
+                }
+                case Op.REMOVE_NODE -> {
+                    var node = nodesById.remove(buffer.getLong());
+                    if (node != null) {
+                        session.removeNode(node);
+                    }
+                }
+                case Op.ADD_LINK -> {
+                    var src = pin(buffer.getLong(), buffer.getShort(), true);
+                    var dst = pin(buffer.getLong(), buffer.getShort(), false);
+                    if (src != null && dst != null) {
+                        session.addLink(new Link2(src, dst));
+                    }
+                }
+                case Op.REMOVE_LINK -> {
+                    var src = pin(buffer.getLong(), buffer.getShort(), true);
+                    var dst = pin(buffer.getLong(), buffer.getShort(), false);
+                    if (src != null && dst != null) {
+                        removeLink(src, dst);
+                    }
+                }
+                case Op.SET_PROPERTY -> {
+                    var node = nodesById.get(buffer.getLong());
+                    var key = getString(buffer);
+                    var value = getString(buffer);
+                    if (node != null) {
+                        session.setProperty(node, key, value);
+                    }
+                }
+                case Op.MOVE_NODE -> {
+                    var node = nodesById.get(buffer.getLong());
+                    float x = buffer.getFloat();
+                    float y = buffer.getFloat();
+                    if (node != null) {
+                        session.moveNode(node, x, y);
+                    }
+                }
+                case Op.CLEAR -> {
+                    session.clear();
+                    nodesById.clear();
+                }
+                case Op.ADD_PIN -> {
+                    long nodeId = buffer.getLong();
+                    boolean isOutput = buffer.get() != 0;
+                    var pin = pin(nodeId, buffer.getShort(), isOutput);
+                    if (pin != null) {
+                        session.addPin(pin);
+                    }
+                }
+                case Op.REMOVE_PIN -> {
+                    long nodeId = buffer.getLong();
+                    boolean isOutput = buffer.get() != 0;
+                    var pin = pin(nodeId, buffer.getShort(), isOutput);
+                    if (pin != null) {
+                        session.removePin(pin);
+                    }
+                }
+                default -> throw new IOException(STR."Unknown journal op \{op} at offset \{buffer.position() - 1}");
+            }
+        }
+
+        private void removeLink(Pin2 src, Pin2 dst) {
+            List<Link2> links = session.getLinks(src);
+            for (int i = 0; i < links.size(); i++) {
+                var link = links.get(i);
+                if (link.dst == dst) {
+                    session.removeLink(link);
+                    return;
+                }
+            }
+        }
+
+        private Pin2 pin(long nodeId, int pinIndex, boolean isOutput) {
+            var node = nodesById.get(nodeId);
+            if (node == null) {
+                return null;
+            }
+            var pins = isOutput ? node.outputs : node.inputs;
+            return (pinIndex >= 0 && pinIndex < pins.size()) ? pins.get(pinIndex) : null;
+        }
+
+        private static int count(ByteBuffer buffer) throws IOException {
+            int count = buffer.getInt();
+            if (count < 0) {
+                throw new IOException(STR."Invalid count \{count} at offset \{buffer.position() - 4}");
+            }
+            return count;
+        }
+
+        private static String getString(ByteBuffer buffer) throws IOException {
+            int length = buffer.getInt();
+            if (length == NULL_STRING) {
+                return null;
+            }
+            if (length < 0) {
+                throw new IOException(STR."Invalid string length \{length} at offset \{buffer.position() - 4}");
+            }
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            var value = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package lando.systems.game.ui.nodeeditor.objects;
 
+import lando.systems.game.ui.nodeeditor.SlotMap;
+
 public abstract class EditorObject {
 
     public enum Type { NODE, PIN, LINK }
@@ -13,6 +15,12 @@ public abstract class EditorObject {
     public final int objectId;
     public final long globalId;
 
+    /**
+     * Handle into the {@link SlotMap} that stores this object while it's part of a session,
+     * {@link SlotMap#NONE} otherwise. Unlike the global id, the slot part of the handle is reused.
+     */
+    public long handle = SlotMap.NONE;
+
     public EditorObject(Type objectType) {
         this.objectType = objectType;
         this.objectId = switch (objectType) {
@@ -2,51 +2,107 @@ package lando.systems.game.ui.nodeeditor.objects;
 
 import imgui.ImColor;
 import imgui.ImGui;
-import imgui.ImGuiInputTextCallbackData;
 import imgui.ImVec2;
-import imgui.callback.ImGuiInputTextCallback;
 import imgui.extension.nodeditor.NodeEditor;
 import imgui.flag.ImDrawFlags;
 import imgui.flag.ImGuiInputTextFlags;
 import imgui.type.ImString;
+import lando.systems.game.ui.nodeeditor.EditorSession;
 import lando.systems.game.ui.nodeeditor.NodeDesc;
+import lando.systems.game.ui.nodeeditor.NodeFactory;
+import lando.systems.game.ui.nodeeditor.SectionBoundsStore;
+import lando.systems.game.ui.nodeeditor.SlotMap;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class Node2 extends EditorObject {
 
-    public static class Bounds {
-        public final ImVec2 min = new ImVec2();
-        public final ImVec2 max = new ImVec2();
+    public enum Section { NODE, HEADER, CONTENT, INPUTS, MIDDLE, OUTPUTS }
 
-        public Bounds() {}
-        public void set(ImVec2 min, ImVec2 max) {
-            this.min.set(min);
-            this.max.set(max);
-        }
-        public void setFromItemRect() {
-            set(ImGui.getItemRectMin(), ImGui.getItemRectMax());
+    /**
+     * Retained ImGui state for one string property, so rendering an unchanged node doesn't allocate.
+     * Rebuilt by {@link #syncStringWidgets()} when the node's set of string properties changes.
+     */
+    private static class StringWidget {
+        static final float UNMEASURED = -1f;
+
+        final String key;
+        // schema slot of the key, or PropertySchema.NONE for keys only this node has
+        final int slot;
+        final boolean isEditable;
+        final String inputLabel;
+        final ImString buffer;
+        final ImVec2 textSize = new ImVec2();
+
+        // property value the buffer was last synced with
+        String value;
+        // uncommitted edits in the buffer
+        boolean isDirty;
+
+        // measured input width and the font it was measured with
+        float width = UNMEASURED;
+        float fontSize;
+        long font;
+
+        StringWidget(Node2 node, String key) {
+            this.key = key;
+            this.slot = (node.props.schema() == null) ? PropertySchema.NONE : node.props.schema().stringSlot(key);
+            this.isEditable = key.equals(NodeFactory.TEXT_PROPERTY);
+            this.inputLabel = STR."##prop-\{key.toLowerCase().replaceAll(" ", "_")}-\{node.toLabel()}";
+            this.value = node.props.strings.get(key);
+            this.buffer = new ImString(value);
+            this.buffer.inputData.isResizable = true;
+            this.isDirty = false;
         }
     }
-    public enum Section { NODE, HEADER, CONTENT, INPUTS, MIDDLE, OUTPUTS }
 
+    /**
+     * Level of detail tiers, chosen by the editor based on zoom
+     */
+    public enum Detail {
+        /** everything: header, pins, property widgets and section backgrounds */
+        FULL,
+        /** header and pins only, property widgets are skipped */
+        HEADER,
+        /** a single solid rectangle, with invisible pin anchors so links still connect */
+        BOX
+    }
+
+    /**
+     * {@link NodeDesc#type} this node was created from
+     */
+    public final String type;
     public String label;
     public int color;
 
     public final NodeProperties props;
     public final List<Pin2> inputs;
     public final List<Pin2> outputs;
-    public final Map<Section, Bounds> bounds;
+
+    /**
+     * Section bounds, indexed by {@link #slot()}. Nodes start out with {@link SectionBoundsStore#DETACHED},
+     * {@link EditorSession#addNode(Node2)} swaps in the session's store and removing the node swaps it back.
+     */
+    public SectionBoundsStore bounds = SectionBoundsStore.DETACHED;
+
+    /**
+     * Session this node was added to, property edits go through it so they're reported to session listeners.
+     * Null while the node isn't part of a session.
+     */
+    public EditorSession session;
+
+    private final List<StringWidget> stringWidgets = new ArrayList<>();
+    // NodeProperties.keysVersion() the widgets were built for
+    private int stringWidgetsKeysVersion = -1;
 
     public Node2(NodeDesc desc) {
         super(EditorObject.Type.NODE);
 
+        this.type = desc.type;
         this.label = desc.type;
         this.color = desc.color;
-        this.props = new NodeProperties(desc.props);
+        this.props = new NodeProperties(desc.schema());
         this.inputs = new ArrayList<>();
         for (var pinDesc : desc.inputs) {
             inputs.add(new Pin2(this, pinDesc));
@@ -55,13 +111,25 @@ public class Node2 extends EditorObject {
         for (var pinDesc : desc.outputs) {
             outputs.add(new Pin2(this, pinDesc));
         }
-        this.bounds = new HashMap<>();
-        for (var section : Section.values()) {
-            bounds.put(section, new Bounds());
-        }
+    }
+
+    /**
+     * @return the slot of this node's handle, ie. its row in {@link #bounds}
+     */
+    public int slot() {
+        return SlotMap.slot(handle);
     }
 
     public void render() {
+        render(Detail.FULL);
+    }
+
+    public void render(Detail detail) {
+        if (detail == Detail.BOX) {
+            renderBox();
+            return;
+        }
+
         NodeEditor.beginNode(globalId);
         ImGui.pushID(globalId);
         ImGui.beginGroup();
@@ -72,7 +140,7 @@ public class Node2 extends EditorObject {
         ImGui.spacing();
         ImGui.spacing();
         ImGui.endGroup();
-        bounds.get(Section.HEADER).setFromItemRect();
+        bounds.setFromItemRect(slot(), Section.HEADER);
 
         // content ----------------------------------------
         ImGui.beginGroup();
@@ -83,62 +151,157 @@ public class Node2 extends EditorObject {
             ImGui.beginGroup();
             inputs.forEach(Pin2::render);
             ImGui.endGroup();
-            bounds.get(Section.INPUTS).setFromItemRect();
+            bounds.setFromItemRect(slot(), Section.INPUTS);
 
             ImGui.sameLine();
 
-            // middle
-            ImGui.beginGroup();
-            for (var prop : props.strings.entrySet()) {
-                var key = prop.getKey();
-                switch (key) {
-                    case "Text" -> {
-                        var inputKey = key.toLowerCase().replaceAll(" ", "_");
-                        var inputLabel = STR."##prop-\{inputKey}-\{toLabel()}";
-                        var inputString = new ImString(prop.getValue());
-                        var inputCallback = new ImGuiInputTextCallback() {
-                            @Override
-                            public void accept(ImGuiInputTextCallbackData data) {
-                                prop.setValue(data.getBuf());
-                            }
-                        };
-
-                        var size = ImGui.calcTextSize(prop.getValue());
-                        var margin = size.x * 0.1f;
-                        ImGui.pushItemWidth(size.x + margin);
-                        ImGui.inputText(inputLabel, inputString, ImGuiInputTextFlags.CallbackEdit, inputCallback);
-                        ImGui.popItemWidth();
-                    }
-                    default -> {
-                        ImGui.text(key);
-                        ImGui.sameLine();
-                        ImGui.text(prop.getValue());
-                    }
-                }
+            // middle - property widgets are only worth laying out when they're readable
+            if (detail == Detail.FULL) {
+                renderProperties();
+                ImGui.sameLine();
             }
-            ImGui.endGroup();
-            bounds.get(Section.MIDDLE).setFromItemRect();
-
-            ImGui.sameLine();
 
             // outputs
             ImGui.beginGroup();
             outputs.forEach(Pin2::render);
             ImGui.endGroup();
-            bounds.get(Section.OUTPUTS).setFromItemRect();
+            bounds.setFromItemRect(slot(), Section.OUTPUTS);
         }
         ImGui.endGroup();
-        bounds.get(Section.CONTENT).setFromItemRect();
+        bounds.setFromItemRect(slot(), Section.CONTENT);
 
 
         ImGui.endGroup();
         ImGui.popID();
         NodeEditor.endNode();
-        bounds.get(Section.NODE).setFromItemRect();
+        bounds.setFromItemRect(slot(), Section.NODE);
 
         renderBackgrounds();
     }
 
+    private void renderProperties() {
+        syncStringWidgets();
+
+        ImGui.beginGroup();
+        for (int i = 0; i < stringWidgets.size(); i++) {
+            var widget = stringWidgets.get(i);
+            var value = (widget.slot != PropertySchema.NONE) ? props.getString(widget.slot) : props.strings.get(widget.key);
+            if (widget.isEditable) {
+                renderStringInput(widget, value);
+            } else {
+                ImGui.text(widget.key);
+                ImGui.sameLine();
+                ImGui.text(value);
+            }
+        }
+        ImGui.endGroup();
+        bounds.setFromItemRect(slot(), Section.MIDDLE);
+    }
+
+    private void renderStringInput(StringWidget widget, String value) {
+        // pick up changes made outside the widget, unless there's an uncommitted edit
+        if (!widget.isDirty && value != widget.value) {
+            widget.value = value;
+            widget.buffer.set(value);
+            widget.width = StringWidget.UNMEASURED;
+        }
+
+        // only measure when the text or font changed
+        float fontSize = ImGui.getFontSize();
+        long font = ImGui.getFont().ptr;
+        if (widget.width == StringWidget.UNMEASURED || widget.fontSize != fontSize || widget.font != font) {
+            ImGui.calcTextSize(widget.textSize, widget.buffer.get());
+            widget.width = widget.textSize.x * 1.1f;
+            widget.fontSize = fontSize;
+            widget.font = font;
+        }
+
+        ImGui.pushItemWidth(widget.width);
+        if (ImGui.inputText(widget.inputLabel, widget.buffer, ImGuiInputTextFlags.None)) {
+            widget.isDirty = true;
+            widget.width = StringWidget.UNMEASURED;
+        }
+        // write the edit back once, when the user is done with the widget
+        if (widget.isDirty && ImGui.isItemDeactivatedAfterEdit()) {
+            widget.value = widget.buffer.get();
+            widget.isDirty = false;
+            if (session != null) {
+                session.setProperty(this, widget.key, widget.value);
+                // the session may have swapped in a pooled instance, keep the identity check above quiet
+                widget.value = props.strings.get(widget.key);
+            } else {
+                props.strings.put(widget.key, widget.value);
+            }
+        }
+        ImGui.popItemWidth();
+    }
+
+    /**
+     * Rebuild retained widget state if the set of string properties changed
+     */
+    private void syncStringWidgets() {
+        if (stringWidgetsKeysVersion == props.keysVersion()) {
+            return;
+        }
+
+        stringWidgetsKeysVersion = props.keysVersion();
+        stringWidgets.clear();
+        for (var key : props.strings.keySet()) {
+            stringWidgets.add(new StringWidget(this, key));
+        }
+    }
+
+    /**
+     * Far zoom level of detail: keep the node at the size it had when last rendered in full,
+     * but only submit placeholder content and draw one rectangle for it
+     */
+    private void renderBox() {
+        var style = NodeEditor.getStyle();
+        var padding = style.getNodePadding();
+        int slot = slot();
+
+        float width = bounds.width(slot, Section.NODE);
+        float height = bounds.height(slot, Section.NODE);
+        if (width <= 0f || height <= 0f) {
+            // never laid out in full detail
+            width = BoxDefault.width;
+            height = BoxDefault.height;
+        }
+        // node padding (left, top, right, bottom) is added around the content by the node editor
+        float contentWidth = Math.max(1f, width - padding.x - padding.z);
+        float contentHeight = Math.max(1f, height - padding.y - padding.w);
+
+        NodeEditor.beginNode(globalId);
+        float originX = ImGui.getCursorScreenPosX();
+        float originY = ImGui.getCursorScreenPosY();
+        ImGui.dummy(contentWidth, contentHeight);
+        renderBoxPins(inputs, originX, originY, contentHeight);
+        renderBoxPins(outputs, originX + contentWidth - 1f, originY, contentHeight);
+        NodeEditor.endNode();
+        bounds.setFromItemRect(slot, Section.NODE);
+
+        var draw = NodeEditor.getNodeBackgroundDrawList(globalId);
+        draw.addRectFilled(
+            bounds.minX(slot, Section.NODE), bounds.minY(slot, Section.NODE),
+            bounds.maxX(slot, Section.NODE), bounds.maxY(slot, Section.NODE),
+            Color.headerBackground, style.getNodeRounding());
+    }
+
+    /**
+     * Submit 1px pin anchors spread along one edge, so links to this node still have endpoints
+     */
+    private void renderBoxPins(List<Pin2> pins, float x, float originY, float contentHeight) {
+        int numPins = pins.size();
+        for (int i = 0; i < numPins; i++) {
+            var pin = pins.get(i);
+            float y = originY + contentHeight * (i + 1) / (numPins + 1);
+            ImGui.setCursorScreenPos(x, y);
+            NodeEditor.beginPin(pin.globalId, pin.kind);
+            ImGui.dummy(1f, 1f);
+            NodeEditor.endPin();
+        }
+    }
+
     private void renderBackgrounds() {
         var draw = NodeEditor.getNodeBackgroundDrawList(globalId);
         var style = NodeEditor.getStyle();
@@ -151,12 +314,18 @@ public class Node2 extends EditorObject {
         var isSelected = NodeEditor.isNodeSelected(globalId);
         var border = borderWidth;
 
+        int slot = slot();
+        float nodeMinX = bounds.minX(slot, Section.NODE);
+        float nodeMinY = bounds.minY(slot, Section.NODE);
+        float nodeMaxX = bounds.maxX(slot, Section.NODE);
+        float nodeMaxY = bounds.maxY(slot, Section.NODE);
+
         // header background - with adjustments to fit the full node width
         // NOTE: min/max are top-left/bottom-right corners in screen space
-        float headerMinX = bounds.get(Section.NODE).min.x + border;
-        float headerMaxX = bounds.get(Section.NODE).max.x - border;
-        float headerMinY = bounds.get(Section.NODE).min.y + border;
-        float headerMaxY = headerMinY + (bounds.get(Section.HEADER).max.y - bounds.get(Section.HEADER).min.y);
+        float headerMinX = nodeMinX + border;
+        float headerMaxX = nodeMaxX - border;
+        float headerMinY = nodeMinY + border;
+        float headerMaxY = headerMinY + bounds.height(slot, Section.HEADER);
 
         draw.addRectFilled(
             headerMinX, headerMinY, headerMaxX, headerMaxY,
@@ -164,9 +333,9 @@ public class Node2 extends EditorObject {
 
         // content background
         draw.addRectFilled(
-            bounds.get(Section.NODE).min.x + border, headerMaxY,
-            bounds.get(Section.NODE).max.x - border,
-            bounds.get(Section.NODE).max.y - border,
+            nodeMinX + border, headerMaxY,
+            nodeMaxX - border,
+            nodeMaxY - border,
             Color.contentBackground, rounding, ImDrawFlags.RoundCornersBottom);
 
         // header/content separator - draw after backgrounds so it overlaps
@@ -186,6 +355,11 @@ public class Node2 extends EditorObject {
         return STR."\{toLabel()}: '\{label}'";
     }
 
+    private static class BoxDefault {
+        private static final float width = 160f;
+        private static final float height = 80f;
+    }
+
     private static class Color {
         private static final int headerBackground = ImColor.rgba("#23531cff");
         private static final int contentBackground = ImColor.rgba("#282c27ff");
@@ -1,29 +1,330 @@
 package lando.systems.game.ui.nodeeditor.objects;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
+/**
+ * Typed properties of a node.
+ * <p>
+ * Properties of a node created from a {@link lando.systems.game.ui.nodeeditor.NodeDesc} follow the desc's
+ * {@link PropertySchema}: values of schema keys live in primitive arrays indexed by slot, which are
+ * copied from the schema defaults on the first write to each kind, so until then a node stores nothing.
+ * Keys outside the schema go to per-kind overflow maps. Properties without a schema, like the
+ * desc's own defaults, keep everything in the overflow maps.
+ * <p>
+ * The {@link #strings}, {@link #ints}, {@link #floats} and {@link #bools} maps are a name-based view over
+ * both, for tools and serialization. Hot paths should resolve slots once through {@link #schema()} and
+ * use the slot accessors. Schema keys always have a value and can't be removed.
+ */
 public class NodeProperties {
-    public final Map<String, String> strings = new HashMap<>();
-    public final Map<String, Integer> ints = new HashMap<>();
-    public final Map<String, Float> floats = new HashMap<>();
-    public final Map<String, Boolean> bools = new HashMap<>();
+    public final Map<String, String> strings;
+    public final Map<String, Integer> ints;
+    public final Map<String, Float> floats;
+    public final Map<String, Boolean> bools;
 
-    public NodeProperties() {}
+    private final PropertySchema schema;
 
-    public NodeProperties(NodeProperties src) {
-        copyFrom(src);
+    // slot values, null until the first write to that kind, reads come from the schema defaults until then
+    private String[] stringValues;
+    private int[] intValues;
+    private float[] floatValues;
+    private long[] boolBits;
+
+    private boolean isFrozen = false;
+    private int keysVersion = 0;
+
+    public NodeProperties() {
+        this(null);
+    }
+
+    /**
+     * @param schema slot layout, or null to keep every key in the overflow maps
+     */
+    public NodeProperties(PropertySchema schema) {
+        this.schema = schema;
+        this.strings = new StringMap();
+        this.ints = new IntMap();
+        this.floats = new FloatMap();
+        this.bools = new BoolMap();
+    }
+
+    /**
+     * @return the slot layout, or null if all keys are stored by name
+     */
+    public PropertySchema schema() {
+        return schema;
+    }
+
+    /**
+     * Changes whenever a key is added or removed, so retained state built from the set of keys can tell when to rebuild
+     */
+    public int keysVersion() {
+        return keysVersion;
     }
 
+    /**
+     * Make the values of these properties match {@code src}.
+     * Schema keys that {@code src} doesn't have keep their defaults, and values equal to
+     * the current ones aren't written, so a node loaded with default values stays as lean as a new one.
+     */
     public void copyFrom(NodeProperties src) {
-        this.strings.clear();
-        this.ints.clear();
-        this.floats.clear();
-        this.bools.clear();
-
-        this.strings.putAll(src.strings);
-        this.ints.putAll(src.ints);
-        this.floats.putAll(src.floats);
-        this.bools.putAll(src.bools);
+        ((PropertyMap<String>) strings).copyFrom(src.strings);
+        ((PropertyMap<Integer>) ints).copyFrom(src.ints);
+        ((PropertyMap<Float>) floats).copyFrom(src.floats);
+        ((PropertyMap<Boolean>) bools).copyFrom(src.bools);
+    }
+
+    void freeze() {
+        isFrozen = true;
+    }
+
+    private void checkWritable() {
+        if (isFrozen) {
+            throw new UnsupportedOperationException("Template properties can't change once a schema was compiled from them");
+        }
+    }
+
+    // Slot access ------------------------------------------------------------
+
+    public String getString(int slot) {
+        return (stringValues != null) ? stringValues[slot] : schema.stringDefaults[slot];
+    }
+
+    public void setString(int slot, String value) {
+        if (value == null) {
+            throw new NullPointerException(STR."Null value for property '\{schema.stringKey(slot)}'");
+        }
+        checkWritable();
+        if (stringValues == null) {
+            stringValues = schema.stringDefaults.clone();
+        }
+        stringValues[slot] = value;
+    }
+
+    public int getInt(int slot) {
+        return (intValues != null) ? intValues[slot] : schema.intDefaults[slot];
+    }
+
+    public void setInt(int slot, int value) {
+        checkWritable();
+        if (intValues == null) {
+            intValues = schema.intDefaults.clone();
+        }
+        intValues[slot] = value;
+    }
+
+    public float getFloat(int slot) {
+        return (floatValues != null) ? floatValues[slot] : schema.floatDefaults[slot];
+    }
+
+    public void setFloat(int slot, float value) {
+        checkWritable();
+        if (floatValues == null) {
+            floatValues = schema.floatDefaults.clone();
+        }
+        floatValues[slot] = value;
+    }
+
+    public boolean getBool(int slot) {
+        var bits = (boolBits != null) ? boolBits : schema.boolDefaults;
+        return (bits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    public void setBool(int slot, boolean value) {
+        checkWritable();
+        if (boolBits == null) {
+            boolBits = schema.boolDefaults.clone();
+        }
+        if (value) {
+            boolBits[slot >>> 6] |= 1L << slot;
+        } else {
+            boolBits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    // Name-based views -------------------------------------------------------
+
+    /**
+     * Map view of one kind of property: schema slots first, then the overflow keys
+     */
+    private abstract class PropertyMap<V> extends AbstractMap<String, V> {
+        // keys outside the schema, null until the first one is added
+        private LinkedHashMap<String, V> overflow;
+
+        abstract int slot(String key);
+        abstract int numSlots();
+        abstract String key(int slot);
+        abstract V value(int slot);
+        abstract void setValue(int slot, V value);
+        abstract void resetSlots();
+
+        @Override
+        public V get(Object key) {
+            if (key instanceof String name) {
+                int slot = slot(name);
+                if (slot != PropertySchema.NONE) {
+                    return value(slot);
+                }
+            }
+            return (overflow == null) ? null : overflow.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (key instanceof String name && slot(name) != PropertySchema.NONE) {
+                return true;
+            }
+            return overflow != null && overflow.containsKey(key);
+        }
+
+        @Override
+        public V put(String key, V value) {
+            if (value == null) {
+                throw new NullPointerException(STR."Null value for property '\{key}'");
+            }
+            checkWritable();
+            int slot = slot(key);
+            if (slot != PropertySchema.NONE) {
+                var previous = value(slot);
+                setValue(slot, value);
+                return previous;
+            }
+            if (overflow == null) {
+                overflow = new LinkedHashMap<>(4);
+            }
+            var previous = overflow.put(key, value);
+            if (previous == null) {
+                keysVersion++;
+            }
+            return previous;
+        }
+
+        @Override
+        public V remove(Object key) {
+            checkWritable();
+            if (key instanceof String name) {
+                int slot = slot(name);
+                if (slot != PropertySchema.NONE) {
+                    throw new UnsupportedOperationException(STR."Property '\{name}' is part of the schema and can't be removed");
+                }
+            }
+            if (overflow == null) {
+                return null;
+            }
+            var previous = overflow.remove(key);
+            if (previous != null) {
+                keysVersion++;
+            }
+            return previous;
+        }
+
+        /**
+         * Reset schema keys to their defaults and remove the others
+         */
+        @Override
+        public void clear() {
+            checkWritable();
+            resetSlots();
+            if (overflow != null && !overflow.isEmpty()) {
+                keysVersion++;
+            }
+            overflow = null;
+        }
+
+        void copyFrom(Map<String, V> src) {
+            clear();
+            for (var entry : src.entrySet()) {
+                var value = entry.getValue();
+                if (!value.equals(get(entry.getKey()))) {
+                    put(entry.getKey(), value);
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return numSlots() + ((overflow == null) ? 0 : overflow.size());
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return PropertyMap.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new EntryIterator();
+                }
+            };
+        }
+
+        private final class EntryIterator implements Iterator<Entry<String, V>> {
+            private final Iterator<Entry<String, V>> overflowEntries =
+                (overflow == null) ? null : overflow.entrySet().iterator();
+            private int slot = 0;
+
+            @Override
+            public boolean hasNext() {
+                return slot < numSlots() || (overflowEntries != null && overflowEntries.hasNext());
+            }
+
+            @Override
+            public Entry<String, V> next() {
+                if (slot < numSlots()) {
+                    var entry = new SimpleImmutableEntry<>(key(slot), value(slot));
+                    slot++;
+                    return entry;
+                }
+                if (overflowEntries == null) {
+                    throw new NoSuchElementException();
+                }
+                var entry = overflowEntries.next();
+                return new SimpleImmutableEntry<>(entry);
+            }
+        }
+    }
+
+    private final class StringMap extends PropertyMap<String> {
+        int slot(String key)                { return (schema == null) ? PropertySchema.NONE : schema.stringSlot(key); }
+        int numSlots()                      { return (schema == null) ? 0 : schema.numStrings(); }
+        String key(int slot)                { return schema.stringKey(slot); }
+        String value(int slot)              { return getString(slot); }
+        void setValue(int slot, String value) { setString(slot, value); }
+        void resetSlots()                   { stringValues = null; }
+    }
+
+    private final class IntMap extends PropertyMap<Integer> {
+        int slot(String key)                { return (schema == null) ? PropertySchema.NONE : schema.intSlot(key); }
+        int numSlots()                      { return (schema == null) ? 0 : schema.numInts(); }
+        String key(int slot)                { return schema.intKey(slot); }
+        Integer value(int slot)             { return getInt(slot); }
+        void setValue(int slot, Integer value) { setInt(slot, value); }
+        void resetSlots()                   { intValues = null; }
+    }
+
+    private final class FloatMap extends PropertyMap<Float> {
+        int slot(String key)                { return (schema == null) ? PropertySchema.NONE : schema.floatSlot(key); }
+        int numSlots()                      { return (schema == null) ? 0 : schema.numFloats(); }
+        String key(int slot)                { return schema.floatKey(slot); }
+        Float value(int slot)               { return getFloat(slot); }
+        void setValue(int slot, Float value) { setFloat(slot, value); }
+        void resetSlots()                   { floatValues = null; }
+    }
+
+    private final class BoolMap extends PropertyMap<Boolean> {
+        int slot(String key)                { return (schema == null) ? PropertySchema.NONE : schema.boolSlot(key); }
+        int numSlots()                      { return (schema == null) ? 0 : schema.numBools(); }
+        String key(int slot)                { return schema.boolKey(slot); }
+        Boolean value(int slot)             { return getBool(slot); }
+        void setValue(int slot, Boolean value) { setBool(slot, value); }
+        void resetSlots()                   { boolBits = null; }
     }
 }
@@ -10,7 +10,7 @@ public class Pin2 extends EditorObject {
     public final Node2 node;
     public final int kind;
     public final PinType type;
-    public final String label;
+    public String label;
 
     public Pin2(Node2 node, PinDesc desc) {
         super(EditorObject.Type.PIN);
@@ -0,0 +1,95 @@
+package lando.systems.game.ui.nodeeditor.objects;
+
+import com.github.tommyettinger.ds.ObjectIntMap;
+
+/**
+ * Property layout of one node type, compiled from the default {@link NodeProperties} of a
+ * {@link lando.systems.game.ui.nodeeditor.NodeDesc}.
+ * <p>
+ * Each key gets a slot index per value kind, nodes store their values in primitive arrays indexed
+ * by those slots, see {@link NodeProperties#getString(int)} and friends. Look a slot up once by name
+ * and keep it, reading a value by slot is an array read instead of a hash lookup.
+ * Schemas never change once compiled, and compiling one freezes its template.
+ */
+public final class PropertySchema {
+
+    /** slot returned for keys that aren't part of the schema */
+    public static final int NONE = -1;
+
+    final String[] stringKeys;
+    final String[] intKeys;
+    final String[] floatKeys;
+    final String[] boolKeys;
+
+    final String[] stringDefaults;
+    final int[] intDefaults;
+    final float[] floatDefaults;
+    final long[] boolDefaults;
+
+    private final ObjectIntMap<String> stringSlots;
+    private final ObjectIntMap<String> intSlots;
+    private final ObjectIntMap<String> floatSlots;
+    private final ObjectIntMap<String> boolSlots;
+
+    private PropertySchema(NodeProperties template) {
+        stringKeys = template.strings.keySet().toArray(new String[0]);
+        intKeys = template.ints.keySet().toArray(new String[0]);
+        floatKeys = template.floats.keySet().toArray(new String[0]);
+        boolKeys = template.bools.keySet().toArray(new String[0]);
+
+        stringSlots = slots(stringKeys);
+        intSlots = slots(intKeys);
+        floatSlots = slots(floatKeys);
+        boolSlots = slots(boolKeys);
+
+        stringDefaults = new String[stringKeys.length];
+        for (int i = 0; i < stringKeys.length; i++) {
+            stringDefaults[i] = template.strings.get(stringKeys[i]);
+        }
+        intDefaults = new int[intKeys.length];
+        for (int i = 0; i < intKeys.length; i++) {
+            intDefaults[i] = template.ints.get(intKeys[i]);
+        }
+        floatDefaults = new float[floatKeys.length];
+        for (int i = 0; i < floatKeys.length; i++) {
+            floatDefaults[i] = template.floats.get(floatKeys[i]);
+        }
+        boolDefaults = new long[(boolKeys.length + 63) / 64];
+        for (int i = 0; i < boolKeys.length; i++) {
+            if (template.bools.get(boolKeys[i])) {
+                boolDefaults[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Assign slots to every key in the template, which can't be changed afterward
+     */
+    public static PropertySchema compile(NodeProperties template) {
+        template.freeze();
+        return new PropertySchema(template);
+    }
+
+    public int stringSlot(String key) { return stringSlots.getOrDefault(key, NONE); }
+    public int intSlot(String key)    { return intSlots.getOrDefault(key, NONE); }
+    public int floatSlot(String key)  { return floatSlots.getOrDefault(key, NONE); }
+    public int boolSlot(String key)   { return boolSlots.getOrDefault(key, NONE); }
+
+    public int numStrings() { return stringKeys.length; }
+    public int numInts()    { return intKeys.length; }
+    public int numFloats()  { return floatKeys.length; }
+    public int numBools()   { return boolKeys.length; }
+
+    public String stringKey(int slot) { return stringKeys[slot]; }
+    public String intKey(int slot)    { return intKeys[slot]; }
+    public String floatKey(int slot)  { return floatKeys[slot]; }
+    public String boolKey(int slot)   { return boolKeys[slot]; }
+
+    private static ObjectIntMap<String> slots(String[] keys) {
+        var slots = new ObjectIntMap<String>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            slots.put(keys[i], i);
+        }
+        return slots;
+    }
+}
@@ -8,19 +8,20 @@ import imgui.extension.nodeditor.NodeEditor;
 import imgui.extension.nodeditor.flag.NodeEditorPinKind;
 import imgui.extension.nodeditor.flag.NodeEditorStyleColor;
 import imgui.extension.nodeditor.flag.NodeEditorStyleVar;
+import imgui.flag.ImGuiKey;
+import imgui.flag.ImGuiMouseButton;
 import imgui.flag.ImGuiStyleVar;
 import imgui.flag.ImGuiWindowFlags;
 import imgui.type.ImLong;
 import lando.systems.game.ui.nodeeditor.BlueprintEditor;
-import lando.systems.game.ui.nodeeditor.NodeDesc;
-import lando.systems.game.ui.nodeeditor.NodeFactory;
+import lando.systems.game.ui.nodeeditor.SlotMap;
 import lando.systems.game.ui.nodeeditor.objects.Link2;
 import lando.systems.game.ui.nodeeditor.objects.Node2;
 import lando.systems.game.ui.nodeeditor.objects.Pin;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 
 public class EditorPane {
 
@@ -42,46 +43,248 @@ public class EditorPane {
         }
     }
 
+    /**
+     * Viewport culling settings and per-frame counters
+     */
+    public static class Culling {
+        /**
+         * Extra canvas space around the visible area where objects are still submitted,
+         * so nodes don't pop in at the edges while panning
+         */
+        public float margin = 100f;
+
+        public int nodesDrawn;
+        public int nodesCulled;
+        public int linksDrawn;
+        public int linksCulled;
+
+        private float minX, minY, maxX, maxY;
+        private final BitSet nodeDrawn = new BitSet();
+        private final BitSet linkVisible = new BitSet();
+        private final List<Node2> visibleNodes = new ArrayList<>();
+
+        private void setView(float minX, float minY, float maxX, float maxY) {
+            this.minX = minX - margin;
+            this.minY = minY - margin;
+            this.maxX = maxX + margin;
+            this.maxY = maxY + margin;
+        }
+
+        private boolean isVisible(float minX, float minY, float maxX, float maxY) {
+            return maxX >= this.minX && minX <= this.maxX
+                && maxY >= this.minY && minY <= this.maxY;
+        }
+    }
+
+    public final Culling culling = new Culling();
+
+    /**
+     * Zoom driven level of detail settings, see {@link Node2.Detail}.
+     * NOTE: zoom values are as reported by the node editor, where larger values are zoomed further out
+     */
+    public static class LevelOfDetail {
+        /** zoom at and beyond which nodes only show their header and pins */
+        public float headerZoom = 2f;
+        /** zoom at and beyond which nodes are drawn as solid boxes */
+        public float boxZoom = 4f;
+
+        public float zoom = 1f;
+        public Node2.Detail detail = Node2.Detail.FULL;
+
+        private void update(float zoom) {
+            this.zoom = zoom;
+            if      (zoom >= boxZoom)    detail = Node2.Detail.BOX;
+            else if (zoom >= headerZoom) detail = Node2.Detail.HEADER;
+            else                         detail = Node2.Detail.FULL;
+        }
+    }
+
+    public final LevelOfDetail lod = new LevelOfDetail();
+
+    // placement settings for nodes created from the popup menu
+    private static class NewNode {
+        static final float estimatedWidth = 160f;
+        static final float estimatedHeight = 80f;
+        static final float padding = 20f;
+    }
+    private final ImVec2 newNodePosition = new ImVec2();
+
+    private final ImVec2 canvasScreenMin = new ImVec2();
+    private final ImVec2 canvasScreenMax = new ImVec2();
     private final ContextMenu contextMenu = new ContextMenu();
-    private final Map<String, NodeDesc> nodeRegistry = new HashMap<>();
 
     public EditorPane(BlueprintEditor blueprintEditor) {
         this.editor = blueprintEditor;
-
-        List.of(
-              NodeFactory.text()
-            , NodeFactory.displayText()
-//            , NodeFactory.displayChoice()
-//            , ...
-        ).forEach(nodeDesc -> {
-            if (nodeRegistry.containsKey(nodeDesc.type)) {
-                throw new IllegalStateException(STR."Duplicate node type: \{nodeDesc.type}");
-            }
-
-            nodeRegistry.put(nodeDesc.type, nodeDesc);
-        });
     }
 
     public void render() {
         int flags = ImGuiWindowFlags.NoCollapse | ImGuiWindowFlags.NoResize | ImGuiWindowFlags.NoTitleBar;
         if (ImGui.begin("Editor", flags)) {
+            // the node editor canvas fills the remaining content region of this window
+            canvasScreenMin.set(ImGui.getCursorScreenPos());
+            canvasScreenMax.set(canvasScreenMin.x + ImGui.getContentRegionAvailX(), canvasScreenMin.y + ImGui.getContentRegionAvailY());
+
+            boolean isZoomingToContent = editor.isZoomToContentPending;
+
             NodeEditor.begin("Node Editor");
             setStyle();
 
-            editor.session.nodes.forEach(Node2::render);
-            editor.session.links.forEach(Link2::render);
+            renderVisibleObjects(isZoomingToContent);
 
             handleLinkCreation();
             handleDeletions();
+            commitMovedNodes();
 
             handleRightClickContextMenus();
 
             unsetStyle();
             NodeEditor.end();
+
+            // every node was submitted this frame, so they're all live for the content bounds
+            if (isZoomingToContent) {
+                NodeEditor.navigateToContent(1);
+                editor.isZoomToContentPending = false;
+            }
+
+            handleUndoShortcuts();
         }
         ImGui.end(); // "Blueprint Canvas"
     }
 
+    /**
+     * Submit only the nodes and links that intersect the visible canvas area, expanded by {@link Culling#margin}.
+     * Visible nodes come from the session's spatial index, which is kept in sync
+     * with the bounds of each node as it's rendered.
+     *
+     * @param isSubmittingAll skip culling for this frame
+     */
+    private void renderVisibleObjects(boolean isSubmittingAll) {
+        var session = editor.session;
+        var nodes = session.nodes;
+        var links = session.links;
+
+        culling.nodesDrawn = 0;
+        culling.nodesCulled = 0;
+        culling.linksDrawn = 0;
+        culling.linksCulled = 0;
+
+        lod.update(NodeEditor.getCurrentZoom());
+
+        // the node editor treats nodes that weren't submitted as gone, and leaves them out of navigate to content,
+        // so everything is submitted on the frame a zoom to content is pending
+        if (!editor.cullOffscreen.get() || isSubmittingAll) {
+            // index loops over the dense slot map storage, no iterator allocations per frame
+            for (int i = 0; i < nodes.size(); i++) {
+                var node = nodes.get(i);
+                node.render(lod.detail);
+                session.updateBounds(node);
+            }
+            for (int i = 0; i < links.size(); i++) {
+                links.get(i).render();
+            }
+            culling.nodesDrawn = nodes.size();
+            culling.linksDrawn = links.size();
+            return;
+        }
+
+        // visible area in canvas space
+        var viewMin = NodeEditor.screenToCanvas(canvasScreenMin);
+        var viewMax = NodeEditor.screenToCanvas(canvasScreenMax);
+        culling.setView(viewMin.x, viewMin.y, viewMax.x, viewMax.y);
+        culling.nodeDrawn.clear();
+
+        // a link is drawn if the area spanned by its nodes is visible,
+        // and its nodes are then drawn too, even when they're off-screen themselves,
+        // because the node editor won't draw links attached to pins that weren't submitted
+        culling.linkVisible.clear();
+        var bounds = editor.session.bounds;
+        var section = Node2.Section.NODE;
+        for (int i = 0; i < links.size(); i++) {
+            var link = links.get(i);
+            int src = link.src.node.slot();
+            int dst = link.dst.node.slot();
+            if (!bounds.isMeasured(src) || !bounds.isMeasured(dst) || culling.isVisible(
+                Math.min(bounds.minX(src, section), bounds.minX(dst, section)),
+                Math.min(bounds.minY(src, section), bounds.minY(dst, section)),
+                Math.max(bounds.maxX(src, section), bounds.maxX(dst, section)),
+                Math.max(bounds.maxY(src, section), bounds.maxY(dst, section)))) {
+                culling.linkVisible.set(i);
+                renderCulled(link.src.node);
+                renderCulled(link.dst.node);
+            }
+        }
+
+        // nodes in view
+        var visibleNodes = culling.visibleNodes;
+        visibleNodes.clear();
+        session.spatialIndex.query(culling.minX, culling.minY, culling.maxX, culling.maxY, visibleNodes);
+        for (int i = 0; i < visibleNodes.size(); i++) {
+            renderCulled(visibleNodes.get(i));
+        }
+        visibleNodes.clear();
+
+        // nodes that were never rendered have no bounds yet, so they aren't in the spatial index
+        var unmeasuredNodes = session.getUnmeasuredNodes();
+        if (!unmeasuredNodes.isEmpty()) {
+            visibleNodes.addAll(unmeasuredNodes);
+            for (int i = 0; i < visibleNodes.size(); i++) {
+                renderCulled(visibleNodes.get(i));
+            }
+            visibleNodes.clear();
+        }
+
+        // keep selected nodes submitted so dragging and navigation keep working
+        for (int i = 0; i < session.numSelectedNodes; i++) {
+            var node = session.getSelectedNode(i);
+            if (node != null) {
+                renderCulled(node);
+            }
+        }
+        culling.nodesCulled = nodes.size() - culling.nodesDrawn;
+
+        // links are submitted after all the nodes, so their pins exist
+        for (int i = 0; i < links.size(); i++) {
+            if (culling.linkVisible.get(i)) {
+                links.get(i).render();
+                culling.linksDrawn++;
+            } else {
+                culling.linksCulled++;
+            }
+        }
+    }
+
+    /**
+     * Render the node if it wasn't already rendered this frame
+     */
+    private void renderCulled(Node2 node) {
+        int slot = SlotMap.slot(node.handle);
+        if (culling.nodeDrawn.get(slot)) {
+            return;
+        }
+        culling.nodeDrawn.set(slot);
+        culling.nodesDrawn++;
+
+        node.render(lod.detail);
+        editor.session.updateBounds(node);
+    }
+
+    /**
+     * Commit the positions of dragged nodes once the drag is over, rather than every frame while they move.
+     * Dragging a node selects it, so the selection covers everything that could have been dragged.
+     */
+    private void commitMovedNodes() {
+        if (!ImGui.isMouseReleased(ImGuiMouseButton.Left)) {
+            return;
+        }
+        var session = editor.session;
+        for (int i = 0; i < session.numSelectedNodes; i++) {
+            var node = session.getSelectedNode(i);
+            if (node != null) {
+                session.commitPosition(node);
+            }
+        }
+    }
+
     private void setStyle() {
         NodeEditor.pushStyleColor(NodeEditorStyleColor.NodeBg,        new ImVec4(1f, 1f, 1f, 0.0f));
         NodeEditor.pushStyleColor(NodeEditorStyleColor.NodeBorder,    new ImVec4( 0.6f,  0.6f,  0.6f, 0.8f));
@@ -127,21 +330,16 @@ public class EditorPane {
     private final ImVec4 rejectLinkColor = new ImVec4(1f, 0f, 0f, 0.6f);
     private final ImVec4 acceptLinkColor = new ImVec4(0f, 1f, 0f, 0.6f);
 
+    // reused between frames, queried every frame while a link is being dragged
+    private final ImLong newLinkPinA = new ImLong();
+    private final ImLong newLinkPinB = new ImLong();
+
     private void handleLinkCreation() {
         if (NodeEditor.beginCreate(createLinkColor, 2f)) {
-            var a = new ImLong();
-            var b = new ImLong();
-
-            if (NodeEditor.queryNewLink(a, b)) {
-                var aPin = a.get();
-                var bPin = b.get();
-
-                var srcPin = editor.session.findPin(aPin);
-                var dstPin = editor.session.findPin(bPin);
-                if (srcPin.isPresent() && dstPin.isPresent()) {
-                    var src = srcPin.get();
-                    var dst = dstPin.get();
-
+            if (NodeEditor.queryNewLink(newLinkPinA, newLinkPinB)) {
+                var src = editor.session.getPin(newLinkPinA.get());
+                var dst = editor.session.getPin(newLinkPinB.get());
+                if (src != null && dst != null) {
                     // ensure the pins are connected in the correct direction
                     if (src.kind == NodeEditorPinKind.Output
                      && dst.kind == NodeEditorPinKind.Input) {
@@ -179,6 +377,25 @@ public class EditorPane {
         NodeEditor.endCreate();
     }
 
+    /**
+     * Ctrl+Z to undo, Ctrl+Y or Ctrl+Shift+Z to redo, unless a text input has the keyboard
+     */
+    private void handleUndoShortcuts() {
+        var io = ImGui.getIO();
+        if (!io.getKeyCtrl() || io.getWantTextInput()) {
+            return;
+        }
+        if (ImGui.isKeyPressed(ImGuiKey.Z)) {
+            if (io.getKeyShift()) {
+                editor.history.redo();
+            } else {
+                editor.history.undo();
+            }
+        } else if (ImGui.isKeyPressed(ImGuiKey.Y)) {
+            editor.history.redo();
+        }
+    }
+
     private void handleDeletions() {
         // handle deleting nodes and links
         NodeEditor.beginDelete();
@@ -297,7 +514,7 @@ public class EditorPane {
 
             // spawn a node if user selects a type from the popup
             Node2 newNode = null;
-            for (var desc : nodeRegistry.values()) {
+            for (var desc : editor.nodeRegistry.values()) {
                 if (ImGui.menuItem(desc.type)) {
                     newNode = new Node2(desc);
                 }
@@ -307,8 +524,16 @@ public class EditorPane {
             if (newNode != null) {
                 editor.session.addNode(newNode);
 
-                // position the new node near the right-click position
-                NodeEditor.setNodePosition(newNode.globalId, openPopupPosition);
+                // position the new node near the right-click position, without overlapping existing nodes
+                // NOTE: the new node hasn't been laid out yet, so its size is estimated
+                var position = newNodePosition;
+                var isFree = editor.session.spatialIndex.findFreeSpace(
+                    openPopupPosition.x, openPopupPosition.y,
+                    NewNode.estimatedWidth, NewNode.estimatedHeight, NewNode.padding, position);
+                if (!isFree) {
+                    position.set(openPopupPosition);
+                }
+                editor.session.moveNode(newNode, position.x, position.y);
 
                 // TODO: auto-connect a pin in the new node to a link that was dragged out
             }
@@ -8,6 +8,7 @@ import imgui.flag.ImGuiSelectableFlags;
 import imgui.flag.ImGuiWindowFlags;
 import lando.systems.game.Util;
 import lando.systems.game.shared.FontAwesomeIcons;
+import lando.systems.game.ui.BackgroundTask;
 import lando.systems.game.ui.ImGuiUtil;
 import lando.systems.game.ui.nodeeditor.BlueprintEditor;
 import lando.systems.game.ui.nodeeditor.objects.Node2;
@@ -19,6 +20,7 @@ public class InfoPane {
     private final BlueprintEditor editor;
 
     private int selectionChangeCount = 0;
+    private final float[] sliderValue = new float[1];
 
     public InfoPane(BlueprintEditor editor) {
         this.editor = editor;
@@ -52,13 +54,27 @@ public class InfoPane {
                 float padding = style.getFramePaddingX();
                 float buttonWidth = (ImGui.getWindowWidth() - (3 * spacing) - (2 * padding)) / 2f;
 
-                // new row for load/save buttons
-                if (ImGui.button(STR."\{FontAwesomeIcons.FolderOpen}Load ", buttonWidth, 0)) {
-                    editor.load();
+                // new row for load/save buttons, or progress while one of them is running
+                if (editor.isFileTaskRunning()) {
+                    renderFileTaskProgress(buttonWidth, spacing);
+                } else {
+                    if (ImGui.button(STR."\{FontAwesomeIcons.FolderOpen}Load ", buttonWidth, 0)) {
+                        editor.load();
+                    }
+                    ImGui.sameLine(0, spacing);
+                    if (ImGui.button(STR."\{FontAwesomeIcons.Save}Save ", buttonWidth, 0)) {
+                        editor.save();
+                    }
+                }
+
+                // new row for undo/redo buttons
+                var history = editor.history;
+                if (ImGui.button(STR."\{FontAwesomeIcons.Undo}Undo (\{history.numUndoSteps()}) ###undo", buttonWidth, 0) && history.canUndo()) {
+                    history.undo();
                 }
                 ImGui.sameLine(0, spacing);
-                if (ImGui.button(STR."\{FontAwesomeIcons.Save}Save ", buttonWidth, 0)) {
-                    editor.save();
+                if (ImGui.button(STR."\{FontAwesomeIcons.Redo}Redo (\{history.numRedoSteps()}) ###redo", buttonWidth, 0) && history.canRedo()) {
+                    history.redo();
                 }
 
                 // new row for zoom and flow buttons
@@ -67,9 +83,7 @@ public class InfoPane {
                 }
                 ImGui.sameLine(0, spacing);
                 if (ImGui.button(STR."\{FontAwesomeIcons.FillDrip}Show flow ", buttonWidth, 0)) {
-                    for (var link : editor.session.links) {
-                        editor.flow(link);
-                    }
+                    editor.run();
                 }
 
                 // new row for repo link
@@ -82,11 +96,75 @@ public class InfoPane {
                 // new rows for setting toggles
                 ImGui.spacing();
                 ImGui.checkbox("Show ordinals", editor.showOrdinals);
+                ImGui.checkbox("Cull offscreen", editor.cullOffscreen);
             } // end section: tool buttons
 
             ImGui.spacing();
             ImGui.separator();
 
+            // render stats section
+            {
+                // heading
+                ImGuiUtil.rectFilled(ImGui.getContentRegionAvailX(), ImGui.getTextLineHeight(), activeHeaderColor, 0.25f);
+                ImGui.spacing();
+                ImGui.sameLine();
+                ImGui.text("Rendering");
+
+                var culling = editor.editorPane.culling;
+                ImGui.indent();
+                ImGui.text(STR."Nodes: \{culling.nodesDrawn} drawn, \{culling.nodesCulled} culled");
+                ImGui.text(STR."Links: \{culling.linksDrawn} drawn, \{culling.linksCulled} culled");
+
+                var strings = editor.session.strings;
+                ImGui.text(STR."Strings: \{strings.size()} pooled, \{String.format("%.1f", strings.bytesSaved() / 1024f)} KB saved");
+                ImGui.text(STR."History: \{String.format("%.1f", editor.history.getNumBytes() / 1024f)} of \{editor.history.getMaxBytes() / 1024} KB");
+
+                var lod = editor.editorPane.lod;
+                ImGui.text(STR."Zoom: \{String.format("%.2f", lod.zoom)} (detail: \{lod.detail})");
+                sliderValue[0] = lod.headerZoom;
+                if (ImGui.sliderFloat("Header zoom", sliderValue, 1f, 10f)) {
+                    lod.headerZoom = sliderValue[0];
+                }
+                sliderValue[0] = lod.boxZoom;
+                if (ImGui.sliderFloat("Box zoom", sliderValue, 1f, 10f)) {
+                    lod.boxZoom = sliderValue[0];
+                }
+                ImGui.unindent();
+            } // end section: render stats
+
+            ImGui.spacing();
+            ImGui.separator();
+
+            // execution section
+            {
+                // heading
+                ImGuiUtil.rectFilled(ImGui.getContentRegionAvailX(), ImGui.getTextLineHeight(), activeHeaderColor, 0.25f);
+                ImGui.spacing();
+                ImGui.sameLine();
+                ImGui.text("Execution");
+
+                ImGui.indent();
+                var compiler = editor.planCompiler;
+                if (compiler.isStale()) {
+                    ImGui.text("Plan: out of date, compiled on the next run");
+                } else {
+                    var plan = compiler.plan();
+                    ImGui.text(STR."Plan: \{plan.numInstructions()} instructions, \{plan.numRegisters()} registers");
+                    if (plan.numSkipped() > 0) {
+                        ImGui.text(STR."Skipped: \{plan.numSkipped()} nodes in cycles");
+                    }
+                }
+                for (var text : editor.output) {
+                    ImGui.bullet();
+                    ImGui.sameLine();
+                    ImGui.text(text);
+                }
+                ImGui.unindent();
+            } // end section: execution
+
+            ImGui.spacing();
+            ImGui.separator();
+
             // node detail rows section
             {
                 // heading
@@ -125,7 +203,11 @@ public class InfoPane {
 
                 ImGui.indent();
                 {
-                    editor.session.getSelectedNodes().forEach(node -> {
+                    var session = editor.session;
+                    for (int i = 0; i < session.numSelectedNodes; i++) {
+                        var node = session.getSelectedNode(i);
+                        if (node == null) continue;
+
                         ImGui.bulletText(STR."\{node.toString()} (\{node.globalId})");
                         if (ImGui.isItemHovered()) {
                             ImGui.setTooltip(STR."""
@@ -138,8 +220,11 @@ public class InfoPane {
                               \{node.outputs.stream().map(Object::toString).collect(Collectors.joining("\r\n  "))}
                             """);
                         }
-                    });
-                    editor.session.getSelectedLinks().forEach(link -> {
+                    }
+                    for (int i = 0; i < session.numSelectedLinks; i++) {
+                        var link = session.getSelectedLink(i);
+                        if (link == null) continue;
+
                         ImGui.bulletText(STR."\{link} (\{link.globalId})");
                         if (ImGui.isItemHovered()) {
                             ImGui.setTooltip(STR."""
@@ -149,7 +234,7 @@ public class InfoPane {
                             Target: \{link.dst.toString()}
                             """);
                         }
-                    });
+                    }
                 }
                 ImGui.unindent();
             } // end section: selection change details
@@ -170,6 +255,20 @@ public class InfoPane {
         ImGui.end();
     }
 
+    private void renderFileTaskProgress(float buttonWidth, float spacing) {
+        var task = editor.fileTask;
+        float progress = task.getProgress();
+        var overlay = (progress == BackgroundTask.INDETERMINATE)
+            ? task.getStatus()
+            : STR."\{task.getStatus()} \{(int) (progress * 100)}%";
+        ImGui.progressBar(Math.max(0f, progress), buttonWidth, 0, overlay);
+
+        ImGui.sameLine(0, spacing);
+        if (ImGui.button(STR."\{FontAwesomeIcons.Times}Cancel ", buttonWidth, 0)) {
+            task.cancel();
+        }
+    }
+
     private void renderNodeDetailRow(Node2 node) {
         ImGui.pushID(node.globalId);
         var drawList = ImGui.getWindowDrawList();
@@ -0,0 +1,145 @@
+package lando.systems.game.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import imgui.ImGui;
+import imgui.extension.nodeditor.NodeEditor;
+import imgui.flag.ImGuiCond;
+import lando.systems.game.ui.ImGuiCore;
+import lando.systems.game.ui.nodeeditor.BlueprintEditor;
+import lando.systems.game.ui.nodeeditor.NodeFactory;
+import lando.systems.game.ui.nodeeditor.objects.Node2;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Drives {@link BlueprintEditor#update()} and {@link BlueprintEditor#render()} over a generated graph
+ * for a fixed number of frames on the {@link ImGuiHeadless} platform, then logs the CPU time
+ * and heap allocation per frame. Warmup frames are run first and not included in the results.
+ */
+public class FrameBenchmark extends ApplicationAdapter {
+
+    private static final String TAG = FrameBenchmark.class.getSimpleName();
+
+    // generated graph layout, in canvas space
+    private static final int COLUMNS = 32;
+    private static final float SPACING_X = 240f;
+    private static final float SPACING_Y = 140f;
+
+    private final int numFrames;
+    private final int numWarmupFrames;
+    private final int numNodes;
+
+    private ImGuiCore imgui;
+    private BlueprintEditor editor;
+
+    public FrameBenchmark(int numFrames, int numNodes) {
+        this.numFrames = numFrames;
+        this.numWarmupFrames = Math.max(10, numFrames / 10);
+        this.numNodes = numNodes;
+    }
+
+    @Override
+    public void create() {
+        imgui = new ImGuiCore(new ImGuiHeadless());
+        // no journal, a benchmark run must neither recover the desktop session nor leave its nodes behind
+        editor = new BlueprintEditor(imgui, null);
+        imgui.init();
+        editor.init();
+
+        generateGraph();
+
+        for (int i = 0; i < numWarmupFrames; i++) {
+            frame();
+        }
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        var frameNanos = new long[numFrames];
+        var frameBytes = new long[numFrames];
+        for (int i = 0; i < numFrames; i++) {
+            long bytesStart = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            frame();
+            frameNanos[i] = System.nanoTime() - start;
+            frameBytes[i] = threads.getThreadAllocatedBytes(threadId) - bytesStart;
+        }
+
+        report(frameNanos, frameBytes);
+        Gdx.app.exit();
+    }
+
+    private void generateGraph() {
+        var session = editor.session;
+        var textDesc = NodeFactory.text();
+        var displayDesc = NodeFactory.displayText();
+
+        NodeEditor.setCurrentEditor(editor.context);
+        Node2 text = null;
+        Node2 previousDisplay = null;
+        for (int i = 0; i < numNodes; i++) {
+            boolean isText = (i & 1) == 0;
+            var node = new Node2(isText ? textDesc : displayDesc);
+            session.addNode(node);
+            NodeEditor.setNodePosition(node.globalId, (i % COLUMNS) * SPACING_X, (i / COLUMNS) * SPACING_Y);
+
+            if (isText) {
+                text = node;
+                continue;
+            }
+
+            // each display node shows the text node before it, and is chained to the previous display node
+            session.addLink(text.outputs.get(0).connectTo(node.inputs.get(1)));
+            if (previousDisplay != null) {
+                session.addLink(previousDisplay.outputs.get(0).connectTo(node.inputs.get(0)));
+            }
+            previousDisplay = node;
+        }
+    }
+
+    /**
+     * Same window setup as {@link lando.systems.game.Main#render()}, without the libGDX scene
+     */
+    private void frame() {
+        imgui.startFrame();
+        {
+            var viewport = ImGui.getMainViewport();
+            ImGui.setNextWindowPos(viewport.getPosX(), viewport.getPosY(), ImGuiCond.Always);
+            ImGui.setNextWindowSize(viewport.getSizeX(), viewport.getSizeY(), ImGuiCond.Always);
+            editor.update();
+            editor.render();
+        }
+        imgui.endFrame();
+    }
+
+    private void report(long[] frameNanos, long[] frameBytes) {
+        Arrays.sort(frameNanos);
+        Arrays.sort(frameBytes);
+
+        long totalBytes = 0;
+        for (long bytes : frameBytes) {
+            totalBytes += bytes;
+        }
+
+        Gdx.app.log(TAG, STR."\{numNodes} nodes, \{editor.session.links.size()} links, \{numFrames} frames (\{numWarmupFrames} warmup)");
+        Gdx.app.log(TAG, STR."frame time ms:  p50 \{millis(percentile(frameNanos, 0.50))}  p99 \{millis(percentile(frameNanos, 0.99))}  max \{millis(frameNanos[frameNanos.length - 1])}");
+        Gdx.app.log(TAG, STR."alloc bytes/frame:  mean \{totalBytes / frameBytes.length}  p50 \{percentile(frameBytes, 0.50)}  p99 \{percentile(frameBytes, 0.99)}");
+        Gdx.app.log(TAG, STR."nodes drawn \{editor.editorPane.culling.nodesDrawn}, culled \{editor.editorPane.culling.nodesCulled}");
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1_000_000.0);
+    }
+
+    @Override
+    public void dispose() {
+        if (editor != null) editor.dispose();
+        if (imgui != null) imgui.dispose();
+    }
+}
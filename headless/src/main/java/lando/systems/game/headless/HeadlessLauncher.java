@@ -1,19 +1,34 @@
 package lando.systems.game.headless;
 
 import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationListener;
 import com.badlogic.gdx.backends.headless.HeadlessApplication;
 import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
 import lando.systems.game.Main;
 
-/** Launches the headless application. Can be converted into a utilities project or a server application. */
+/**
+ * Launches the headless application. Can be converted into a utilities project or a server application.
+ * <p>
+ * Run with {@code --benchmark [frames] [nodes]} to measure the CPU cost of node editor frames, see {@link FrameBenchmark}.
+ */
 public class HeadlessLauncher {
+
+    private static final int DEFAULT_BENCHMARK_FRAMES = 600;
+    private static final int DEFAULT_BENCHMARK_NODES = 1000;
+
     public static void main(String[] args) {
-        createApplication();
+        if (args.length > 0 && args[0].equals("--benchmark")) {
+            int frames = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_BENCHMARK_FRAMES;
+            int nodes = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_BENCHMARK_NODES;
+            createApplication(new FrameBenchmark(frames, nodes));
+        } else {
+            createApplication(new Main(new ImGuiHeadless()));
+        }
     }
 
-    private static Application createApplication() {
+    private static Application createApplication(ApplicationListener listener) {
         // Note: you can use a custom ApplicationListener implementation for the headless project instead of Main.
-        return new HeadlessApplication(new Main(), getDefaultConfiguration());
+        return new HeadlessApplication(listener, getDefaultConfiguration());
     }
 
     private static HeadlessApplicationConfiguration getDefaultConfiguration() {
@@ -24,4 +39,4 @@ public class HeadlessLauncher {
         //configuration.renderInterval = -1f; // When this value is negative, Main#render() is never called.
         return configuration;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package lando.systems.game.headless;
+
+import imgui.ImFont;
+import imgui.ImGui;
+import imgui.type.ImInt;
+import lando.systems.game.shared.ImGuiPlatform;
+
+/**
+ * ImGui platform without a window or GL context: the context and font atlas are created
+ * in memory, frames are fed a fixed display size and time step, and draw data is discarded.
+ * Every font name resolves to ImGui's built-in default font.
+ */
+public class ImGuiHeadless implements ImGuiPlatform {
+
+    public float displayWidth = 1280f;
+    public float displayHeight = 720f;
+    public float deltaTime = 1 / 60f;
+
+    private ImFont defaultFont;
+
+    @Override
+    public void init() {
+        ImGui.createContext();
+
+        var io = ImGui.getIO();
+        io.setIniFilename(null);
+        io.setDisplaySize(displayWidth, displayHeight);
+
+        // rasterize the atlas like a renderer backend would, but keep the pixels in memory
+        var fonts = io.getFonts();
+        defaultFont = fonts.addFontDefault();
+        fonts.build();
+        fonts.getTexDataAsRGBA32(new ImInt(), new ImInt());
+    }
+
+    @Override
+    public void startFrame() {
+        var io = ImGui.getIO();
+        io.setDisplaySize(displayWidth, displayHeight);
+        io.setDeltaTime(deltaTime);
+    }
+
+    @Override
+    public void endFrame() {
+        // nothing to submit, ImGui.render() already built the draw data
+    }
+
+    @Override
+    public void dispose() {
+        defaultFont = null;
+    }
+
+    @Override
+    public ImFont getFont(String name) {
+        return defaultFont;
+    }
+}